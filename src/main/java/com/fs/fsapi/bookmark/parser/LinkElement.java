@@ -31,4 +31,20 @@ public class LinkElement {
     this.text = element.wholeText();
     this.href = element.attr("href");
   }
+
+  /**
+   * 
+   * @param text  link text content
+   * @param href  link {@code href} attribute value
+   */
+  public LinkElement(String text, String href) {
+    if (href == null) {
+      throw new IllegalArgumentException(
+        "Expected element to have 'href' attribute"
+      );
+    }
+
+    this.text = text;
+    this.href = href;
+  }
 }
@@ -0,0 +1,37 @@
+package com.fs.fsapi.config;
+
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Scheduler for the blocking work of reactive pipelines, like the persistent
+ * cache and image file writes.
+ *
+ * <p>With {@code spring.threads.virtual.enabled} Tomcat handles requests on
+ * virtual threads, and the blocking work runs on a virtual thread per task
+ * too. Otherwise the bounded elastic platform thread pool is used.
+ */
+@Configuration
+public class CustomSchedulerConfig {
+
+  @Value("${spring.threads.virtual.enabled:false}")
+  private boolean virtualThreads;
+
+  @Bean(destroyMethod = "dispose")
+  public Scheduler blockingScheduler() {
+    if (virtualThreads) {
+      return Schedulers.fromExecutorService(
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("blocking-", 0).factory()),
+        "blocking"
+      );
+    }
+
+    return Schedulers.boundedElastic();
+  }
+}
@@ -1,20 +1,93 @@
 package com.fs.fsapi.config;
 
+import java.time.Duration;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
 @Configuration
 public class CustomWebClientConfig {
 
   @Value("${metallum.url: https://www.metal-archives.com}")
   private String metallumUrl;
 
+  @Value("${metallum.client.max-connections:50}")
+  private int maxConnections;
+
+  @Value("${metallum.client.pending-acquire-max-count:500}")
+  private int pendingAcquireMaxCount;
+
+  @Value("${metallum.client.pending-acquire-timeout:10s}")
+  private Duration pendingAcquireTimeout;
+
+  @Value("${metallum.client.max-idle-time:30s}")
+  private Duration maxIdleTime;
+
+  @Value("${metallum.client.max-life-time:10m}")
+  private Duration maxLifeTime;
+
+  @Value("${metallum.client.connect-timeout:5s}")
+  private Duration connectTimeout;
+
+  @Value("${metallum.client.response-timeout:30s}")
+  private Duration responseTimeout;
+
+  @Value("${metallum.client.http2:true}")
+  private boolean http2;
+
+  @Value("${metallum.client.compression:true}")
+  private boolean compression;
+
+  /**
+   * Pool of the connections to metallum. Connections are kept alive between
+   * requests, so that most requests skip the connection setup and the TLS
+   * handshake. Idle and old connections are evicted in the background.
+   *
+   * <p>The pool publishes its metrics, like the active, idle and pending
+   * connections and the acquire time, as
+   * {@code reactor.netty.connection.provider.*}.
+   * 
+   * @return the connection provider
+   */
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider metallumConnectionProvider() {
+    return ConnectionProvider.builder("metallum")
+      .maxConnections(maxConnections)
+      .pendingAcquireMaxCount(pendingAcquireMaxCount)
+      .pendingAcquireTimeout(pendingAcquireTimeout)
+      .maxIdleTime(maxIdleTime)
+      .maxLifeTime(maxLifeTime)
+      .evictInBackground(maxIdleTime)
+      .metrics(true)
+      .build();
+  }
+
   @Bean
-  public WebClient webClient() {
+  public WebClient webClient(ConnectionProvider metallumConnectionProvider) {
+    HttpClient httpClient = HttpClient.create(metallumConnectionProvider)
+      .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+      .option(ChannelOption.SO_KEEPALIVE, true)
+      .responseTimeout(responseTimeout)
+      .compress(compression);
+
+    // HTTP/2 is negotiated during the TLS handshake, and falls back to
+    // HTTP/1.1 if the upstream does not support it
+    if (http2 && metallumUrl.strip().startsWith("https:")) {
+      httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+    }
+
     return WebClient.builder()
       .baseUrl(metallumUrl)
+      .clientConnector(new ReactorClientHttpConnector(httpClient))
       .build();
   }
 }
@@ -11,6 +11,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import com.fs.fsapi.exceptions.response.ApiValidationError;
 import com.fs.fsapi.exceptions.response.ErrorResponse;
@@ -181,6 +182,21 @@ public class CustomControllerAdvice {
     );
   }
 
+  @ExceptionHandler(CustomMetallumUnavailableException.class)
+  public ResponseEntity<ErrorResponse> handleCustomMetallumUnavailableExceptions(
+    CustomMetallumUnavailableException e
+  ) {
+    HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+    String message = e.getMessage();
+    
+    log.warn("CustomMetallumUnavailableException: " + message);
+
+    return new ResponseEntity<>(
+      new ErrorResponse(status, message),
+      status
+    );
+  }
+
   @ExceptionHandler(CustomMetallumScrapingException.class)
   public ResponseEntity<ErrorResponse> handleCustomMetallumScrapingExceptions(
     CustomMetallumScrapingException e
@@ -195,6 +211,34 @@ public class CustomControllerAdvice {
     );
   }
 
+  // error responses of metallum that are not retried, a missing logo or
+  // cover is not found, any other error is a bad response of the upstream
+  @ExceptionHandler(WebClientResponseException.class)
+  public ResponseEntity<ErrorResponse> handleWebClientResponseExceptions(
+    WebClientResponseException e
+  ) {
+    if (e.getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      String message = "Metallum resource not found";
+
+      log.info("WebClientResponseException: " + e.getMessage());
+
+      return new ResponseEntity<>(
+        new ErrorResponse(status, message),
+        status
+      );
+    }
+
+    HttpStatus status = HttpStatus.BAD_GATEWAY;
+
+    log.error("WebClientResponseException", e);
+
+    return new ResponseEntity<>(
+      new ErrorResponse(status, FALL_BACK_MESSAGE),
+      status
+    );
+  }
+
   // fallback method
   @ExceptionHandler(Exception.class)
   public ResponseEntity<ErrorResponse> handleExceptions(Exception e) {
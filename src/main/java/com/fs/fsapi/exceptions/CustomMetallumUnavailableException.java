@@ -0,0 +1,12 @@
+package com.fs.fsapi.exceptions;
+
+/**
+ * Thrown when Metallum can not be reached, is failing or is throttled, so
+ * the request should be retried later.
+ */
+public class CustomMetallumUnavailableException extends CustomMetallumException {
+  
+  public CustomMetallumUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,27 @@
+package com.fs.fsapi.metallum;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/albums")
+@RequiredArgsConstructor
+public class AlbumMetallumController {
+
+  private final AlbumMetallumService service;
+
+  @GetMapping("/{id}/metallum")
+  public Mono<ResponseEntity<AlbumMetallumDetails>> getAlbumMetallumDetails(
+    @PathVariable Integer id
+  ) {
+    return service
+      .findDetails(id)
+      .map(ResponseEntity::ok);
+  }
+}
@@ -0,0 +1,40 @@
+package com.fs.fsapi.metallum;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fs.fsapi.album.Album;
+import com.fs.fsapi.exceptions.response.ErrorResponse;
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+import com.fs.fsapi.metallum.parser.ReleaseDetailsResult;
+import com.fs.fsapi.metallum.parser.SongResult;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Album with its metallum details. Parts that could not be resolved are
+ * missing, and the error of each failed part is found by the part name,
+ * {@code "search"} or {@code "songs"}. The songs and the release details
+ * are resolved together, so they fail together.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AlbumMetallumDetails {
+
+  private Album album;
+
+  private ArtistTitleSearchResult search;
+
+  private List<SongResult> songs;
+
+  private ReleaseDetailsResult release;
+
+  private String artistLogoUrl;
+
+  private String titleCoverUrl;
+
+  private Map<String, ErrorResponse> errors;
+}
@@ -0,0 +1,109 @@
+package com.fs.fsapi.metallum;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fs.fsapi.album.Album;
+import com.fs.fsapi.album.AlbumService;
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.exceptions.response.ErrorResponse;
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+import com.fs.fsapi.metallum.parser.TitlePageResult;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Resolves the metallum details of a stored album with a single call. Each
+ * part has its own timeout, and a part failing does not fail the other
+ * parts.
+ */
+@Service
+public class AlbumMetallumService {
+
+  private final AlbumService albumService;
+
+  private final MetallumService metallumService;
+
+  private final Scheduler blockingScheduler;
+
+  private final Duration searchTimeout;
+
+  private final Duration songsTimeout;
+
+  public AlbumMetallumService(
+    AlbumService albumService,
+    MetallumService metallumService,
+    Scheduler blockingScheduler,
+    @Value("${metallum.album-details.search-timeout:15s}") Duration searchTimeout,
+    @Value("${metallum.album-details.songs-timeout:15s}") Duration songsTimeout
+  ) {
+    this.albumService = albumService;
+    this.metallumService = metallumService;
+    this.blockingScheduler = blockingScheduler;
+    this.searchTimeout = searchTimeout;
+    this.songsTimeout = songsTimeout;
+  }
+
+  /**
+   * Get the album and search its metallum details. The songs and the
+   * release details are read from a single release title page, once the
+   * search has resolved the release title, and the cover image url is the
+   * one the page links to.
+   * 
+   * @param id  the album id
+   * @return Mono emitting the album details, or a
+   *         {@link CustomDataNotFoundException} if the album does not exist
+   */
+  public Mono<AlbumMetallumDetails> findDetails(Integer id) {
+    return Mono
+      .fromCallable(() -> albumService.findOne(id))
+      .subscribeOn(blockingScheduler)
+      .flatMap(album -> metallumService
+        .searchByArtistAndTitleReactive(album.getArtist(), album.getTitle())
+        .timeout(searchTimeout)
+        .flatMap(search -> withSongsAndImages(album, search))
+        .onErrorResume(e -> Mono.just(new AlbumMetallumDetails(
+          album, null, null, null, null, null, Map.of("search", MetallumErrorResponses.of(e))
+        ))));
+  }
+
+  private Mono<AlbumMetallumDetails> withSongsAndImages(
+    Album album,
+    ArtistTitleSearchResult search
+  ) {
+    final Mono<Part<TitlePageResult>> page = metallumService
+      .searchTitlePageReactive(search.getTitleId())
+      .timeout(songsTimeout)
+      .map(Part::of)
+      .onErrorResume(e -> Mono.just(Part.failed(MetallumErrorResponses.of(e))));
+
+    // the cover url is created once the title page is cached
+    return page.map(pagePart -> new AlbumMetallumDetails(
+      album,
+      search,
+      pagePart.value().map(TitlePageResult::getSongs).orElse(null),
+      pagePart.value().map(TitlePageResult::getDetails).orElse(null),
+      metallumService.createArtistLogoUrl(search.getArtistId()),
+      metallumService.createTitleCoverUrl(search.getTitleId()),
+      pagePart.error()
+        .map(error -> Map.of("songs", error))
+        .orElse(null)
+    ));
+  }
+
+  private record Part<T>(Optional<T> value, Optional<ErrorResponse> error) {
+
+    static <T> Part<T> of(T value) {
+      return new Part<>(Optional.of(value), Optional.empty());
+    }
+
+    static <T> Part<T> failed(ErrorResponse error) {
+      return new Part<>(Optional.empty(), Optional.of(error));
+    }
+  }
+}
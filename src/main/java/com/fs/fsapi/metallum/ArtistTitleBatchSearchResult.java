@@ -0,0 +1,26 @@
+package com.fs.fsapi.metallum;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fs.fsapi.exceptions.response.ErrorResponse;
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of a single search of a batch, containing either the search
+ * result or the error the search failed with.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ArtistTitleBatchSearchResult {
+
+  private String artist;
+
+  private String title;
+
+  private ArtistTitleSearchResult result;
+
+  private ErrorResponse error;
+}
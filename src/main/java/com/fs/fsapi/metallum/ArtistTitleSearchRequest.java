@@ -0,0 +1,20 @@
+package com.fs.fsapi.metallum;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter @Setter
+@EqualsAndHashCode
+@NoArgsConstructor @AllArgsConstructor
+public class ArtistTitleSearchRequest {
+
+  @NotBlank(message = "Artist name is required")
+  private String artist;
+
+  @NotBlank(message = "Title is required")
+  private String title;
+}
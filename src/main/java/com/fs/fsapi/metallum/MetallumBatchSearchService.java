@@ -0,0 +1,127 @@
+package com.fs.fsapi.metallum;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fs.fsapi.exceptions.CustomParameterConstraintException;
+import com.fs.fsapi.exceptions.response.ErrorResponse;
+import com.fs.fsapi.metallum.cache.ArtistTitleSearchCache;
+import com.fs.fsapi.metallum.cache.CanonicalSearchKeys;
+import com.fs.fsapi.metallum.cache.DoubleKey;
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Resolves many artist and title searches with a single call. Cached
+ * results are emitted first, equivalent searches are resolved once, and the
+ * remaining searches are resolved with a bounded number running at the
+ * same time. Results are emitted in the order they complete.
+ */
+@Service
+public class MetallumBatchSearchService {
+
+  private final MetallumService metallumService;
+
+  private final ArtistTitleSearchCache cache;
+
+  private final CanonicalSearchKeys searchKeys;
+
+  private final int maximumSize;
+
+  private final int concurrency;
+
+  public MetallumBatchSearchService(
+    MetallumService metallumService,
+    ArtistTitleSearchCache cache,
+    CanonicalSearchKeys searchKeys,
+    @Value("${metallum.search.batch.maximum-size:100}") int maximumSize,
+    @Value("${metallum.search.batch.concurrency:4}") int concurrency
+  ) {
+    if (concurrency <= 0) {
+      throw new IllegalArgumentException(
+        "Expected concurrency '" + concurrency + "' to be positive"
+      );
+    }
+
+    this.metallumService = metallumService;
+    this.cache = cache;
+    this.searchKeys = searchKeys;
+    this.maximumSize = maximumSize;
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * Search basic release information of every request. A failed search
+   * does not fail the batch, its result contains the error instead.
+   * 
+   * @param requests  the artist and title pairs
+   * @return Flux emitting a result per request
+   * @throws CustomParameterConstraintException if there are more requests
+   *         than the maximum batch size
+   */
+  public Flux<ArtistTitleBatchSearchResult> search(List<ArtistTitleSearchRequest> requests) {
+    if (requests.size() > maximumSize) {
+      throw new CustomParameterConstraintException(
+        "Expected at most " + maximumSize + " searches, got " + requests.size()
+      );
+    }
+
+    final List<DoubleKey<String, String>> keys = requests.stream()
+      .map(request -> new DoubleKey<>(request.getArtist(), request.getTitle()))
+      .toList();
+    final Map<DoubleKey<String, String>, ArtistTitleSearchResult> cached = cache.getAll(keys);
+
+    final List<ArtistTitleBatchSearchResult> hits = new ArrayList<>();
+    // equivalent searches, by their canonical key
+    final Map<String, List<ArtistTitleSearchRequest>> misses = new LinkedHashMap<>();
+    for (int i = 0; i < requests.size(); i++) {
+      final ArtistTitleSearchRequest request = requests.get(i);
+      final ArtistTitleSearchResult result = cached.get(keys.get(i));
+      if (result != null) {
+        hits.add(new ArtistTitleBatchSearchResult(
+          request.getArtist(), request.getTitle(), result, null
+        ));
+      } else {
+        misses
+          .computeIfAbsent(
+            searchKeys.key(request.getArtist(), request.getTitle()),
+            k -> new ArrayList<>()
+          )
+          .add(request);
+      }
+    }
+
+    return Flux.concat(
+      Flux.fromIterable(hits),
+      Flux.fromIterable(misses.values())
+        .flatMap(this::searchEquivalent, concurrency)
+    );
+  }
+
+  private Flux<ArtistTitleBatchSearchResult> searchEquivalent(
+    List<ArtistTitleSearchRequest> requests
+  ) {
+    final ArtistTitleSearchRequest first = requests.get(0);
+
+    return metallumService
+      .searchByArtistAndTitleReactive(first.getArtist(), first.getTitle())
+      .flatMapIterable(result -> requests.stream()
+        .map(request -> new ArtistTitleBatchSearchResult(
+          request.getArtist(), request.getTitle(), result, null
+        ))
+        .toList())
+      .onErrorResume(e -> {
+        final ErrorResponse error = MetallumErrorResponses.of(e);
+        return Flux.fromIterable(requests)
+          .map(request -> new ArtistTitleBatchSearchResult(
+            request.getArtist(), request.getTitle(), null, error
+          ));
+      });
+  }
+}
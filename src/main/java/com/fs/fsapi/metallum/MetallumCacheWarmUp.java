@@ -0,0 +1,295 @@
+package com.fs.fsapi.metallum;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.fs.fsapi.album.Album;
+import com.fs.fsapi.album.AlbumRepository;
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.metallum.cache.ArtistTitleSearchCache;
+import com.fs.fsapi.metallum.client.MetallumCircuitBreaker;
+import com.fs.fsapi.metallum.client.MetallumRateLimiter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.util.context.Context;
+
+/**
+ * Resolves the metallum search of every stored album into the search cache
+ * once the application is ready, so that the first users after a deploy do
+ * not wait on cold lookups.
+ *
+ * <p>Albums are read in pages. Searches are started at a configured rate and
+ * only a configured number of them run at the same time, so that the warm-up
+ * does not compete with interactive traffic. The searches are background
+ * requests of the {@link MetallumRateLimiter}, which take a token only while
+ * no interactive request waits for one. Albums already cached are skipped
+ * without a request, as are albums reached while the circuit breaker is not
+ * closed. The progress and the estimated time remaining are published as
+ * metrics.
+ */
+@Slf4j
+@Component
+public class MetallumCacheWarmUp implements MeterBinder {
+
+  private static final String PREFIX = "metallum.cache.warmup";
+
+  private final AlbumRepository albumRepository;
+
+  private final MetallumService metallumService;
+
+  private final ArtistTitleSearchCache cache;
+
+  private final MetallumCircuitBreaker circuitBreaker;
+
+  private final boolean enabled;
+
+  private final int pageSize;
+
+  private final long intervalNanos;
+
+  private final int concurrency;
+
+  private final AtomicLong total = new AtomicLong();
+
+  private final AtomicLong processed = new AtomicLong();
+
+  private final AtomicLong failed = new AtomicLong();
+
+  private final AtomicLong skipped = new AtomicLong();
+
+  private volatile long startedAt;
+
+  private volatile Thread coordinator;
+
+  private volatile ExecutorService executor;
+
+  public MetallumCacheWarmUp(
+    AlbumRepository albumRepository,
+    MetallumService metallumService,
+    ArtistTitleSearchCache cache,
+    MetallumCircuitBreaker circuitBreaker,
+    @Value("${metallum.cache.warm-up.enabled:false}") boolean enabled,
+    @Value("${metallum.cache.warm-up.page-size:100}") int pageSize,
+    @Value("${metallum.cache.warm-up.requests-per-second:1}") double requestsPerSecond,
+    @Value("${metallum.cache.warm-up.concurrency:2}") int concurrency
+  ) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException(
+        "Expected page size '" + pageSize + "' to be positive"
+      );
+    } else if (requestsPerSecond <= 0) {
+      throw new IllegalArgumentException(
+        "Expected requests per second '" + requestsPerSecond + "' to be positive"
+      );
+    } else if (concurrency <= 0) {
+      throw new IllegalArgumentException(
+        "Expected concurrency '" + concurrency + "' to be positive"
+      );
+    }
+
+    this.albumRepository = albumRepository;
+    this.metallumService = metallumService;
+    this.cache = cache;
+    this.circuitBreaker = circuitBreaker;
+    this.enabled = enabled;
+    this.pageSize = pageSize;
+    this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+    this.concurrency = concurrency;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+
+    final Thread thread = new Thread(this::run, "metallum-warm-up");
+    thread.setDaemon(true);
+    coordinator = thread;
+    thread.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    final Thread thread = coordinator;
+    if (thread != null) {
+      thread.interrupt();
+    }
+
+    final ExecutorService executor = this.executor;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Warm up the search cache. Returns once every search has completed, or
+   * when the thread is interrupted.
+   */
+  void run() {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+      final Thread thread = new Thread(runnable, "metallum-warm-up-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor = executor;
+
+    final Semaphore slots = new Semaphore(concurrency);
+    startedAt = System.nanoTime();
+    long nextStart = startedAt;
+
+    try {
+      Page<Album> page = albumRepository.findAll(PageRequest.of(0, pageSize, Sort.by("id")));
+      total.set(page.getTotalElements());
+      log.info("Warming up metallum search cache for " + total.get() + " albums");
+
+      while (true) {
+        for (Album album : page) {
+          if (cache.inspect(album.getArtist(), album.getTitle()).isPresent()) {
+            processed.incrementAndGet();
+            continue;
+          }
+
+          // metallum is failing, do not add to its load
+          if (!circuitBreaker.isClosed()) {
+            skipped.incrementAndGet();
+            processed.incrementAndGet();
+            continue;
+          }
+
+          slots.acquire();
+
+          final long wait = nextStart - System.nanoTime();
+          if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+          }
+          nextStart = Math.max(nextStart, System.nanoTime()) + intervalNanos;
+
+          executor.execute(() -> {
+            try {
+              warm(album);
+            } finally {
+              slots.release();
+            }
+          });
+        }
+
+        log.info(
+          "Warmed up " + processed.get() + "/" + total.get()
+          + " metallum searches, estimated " + getEtaSeconds() + "s remaining"
+        );
+
+        if (!page.hasNext()) {
+          break;
+        }
+
+        page = albumRepository.findAll(page.nextPageable());
+      }
+
+      // wait for the last searches
+      slots.acquire(concurrency);
+      log.info(
+        "Warmed up metallum search cache, " + failed.get() + " of "
+        + total.get() + " searches failed, " + skipped.get() + " skipped"
+      );
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.info("Metallum search cache warm-up was interrupted");
+    } catch (RuntimeException e) {
+      log.warn("Metallum search cache warm-up failed: " + e.getMessage());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private void warm(Album album) {
+    try {
+      metallumService
+        .searchByArtistAndTitleReactive(album.getArtist(), album.getTitle())
+        .contextWrite(Context.of(MetallumRateLimiter.BACKGROUND, true))
+        .block();
+    } catch (CustomDataNotFoundException e) {
+      // cached as not found, nothing else to do
+    } catch (RuntimeException e) {
+      failed.incrementAndGet();
+      log.debug(
+        "Could not warm up search for '" + album.getTitle() + "' by '"
+        + album.getArtist() + "': " + e.getMessage()
+      );
+    } finally {
+      processed.incrementAndGet();
+    }
+  }
+
+  /**
+   * Estimate the time remaining from the rate the albums have been processed
+   * at so far.
+   *
+   * @return the estimated seconds remaining, or zero if nothing is left or
+   *         nothing has been processed yet
+   */
+  double getEtaSeconds() {
+    final long done = processed.get();
+    final long remaining = total.get() - done;
+    if (done == 0 || remaining <= 0) {
+      return 0;
+    }
+
+    final double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+    return remaining * elapsedSeconds / done;
+  }
+
+  long getProcessed() {
+    return processed.get();
+  }
+
+  long getFailed() {
+    return failed.get();
+  }
+
+  long getSkipped() {
+    return skipped.get();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder(PREFIX + ".total", total, AtomicLong::get)
+      .description("The number of albums to warm up the search cache for")
+      .register(registry);
+
+    Gauge.builder(PREFIX + ".processed", processed, AtomicLong::get)
+      .description("The number of albums the search cache has been warmed up for")
+      .register(registry);
+
+    Gauge.builder(PREFIX + ".failed", failed, AtomicLong::get)
+      .description("The number of albums the search failed for")
+      .register(registry);
+
+    Gauge.builder(PREFIX + ".skipped", skipped, AtomicLong::get)
+      .description("The number of albums skipped while metallum was failing")
+      .register(registry);
+
+    Gauge.builder(PREFIX + ".eta", this, MetallumCacheWarmUp::getEtaSeconds)
+      .description("The estimated time remaining until the warm-up completes")
+      .baseUnit("seconds")
+      .register(registry);
+  }
+}
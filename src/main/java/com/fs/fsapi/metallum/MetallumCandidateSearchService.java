@@ -0,0 +1,198 @@
+package com.fs.fsapi.metallum;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.metallum.cache.CanonicalSearchKeys;
+import com.fs.fsapi.metallum.cache.SearchCandidatesCache;
+import com.fs.fsapi.metallum.client.InFlightRequests;
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+import com.fs.fsapi.metallum.parser.MetallumParser;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolves every candidate of an artist and title search with a single
+ * upstream request, instead of only the first one. Candidates are ranked by
+ * how similar their artist name and release title are to the searched ones,
+ * and can be narrowed by release type.
+ *
+ * <p>The whole ranked list is cached as a single entry, and filtered only
+ * when it is returned. Only the first page of upstream results is
+ * requested, so searches with many results are not downloaded as a whole.
+ */
+@Service
+public class MetallumCandidateSearchService {
+
+  private final MetallumService metallumService;
+
+  private final MetallumParser parser;
+
+  private final SearchCandidatesCache cache;
+
+  private final CanonicalSearchKeys searchKeys;
+
+  private final InFlightRequests inFlight;
+
+  private final int maximumCandidates;
+
+  public MetallumCandidateSearchService(
+    MetallumService metallumService,
+    MetallumParser parser,
+    SearchCandidatesCache cache,
+    CanonicalSearchKeys searchKeys,
+    InFlightRequests inFlight,
+    @Value("${metallum.search.candidates.maximum-size:20}") int maximumCandidates
+  ) {
+    if (maximumCandidates <= 0) {
+      throw new IllegalArgumentException(
+        "Expected maximum candidates '" + maximumCandidates + "' to be positive"
+      );
+    }
+
+    this.metallumService = metallumService;
+    this.parser = parser;
+    this.cache = cache;
+    this.searchKeys = searchKeys;
+    this.inFlight = inFlight;
+    this.maximumCandidates = maximumCandidates;
+  }
+
+  /**
+   * Search every candidate release, the most similar first.
+   *
+   * @param artist  the artist name
+   * @param title  the release title
+   * @param releaseType  the release type to narrow the candidates to, case
+   *                     insensitive, or {@code null} for every type
+   * @return Mono emitting the ranked candidates, or a
+   *         {@link CustomDataNotFoundException} if there are none
+   */
+  public Mono<List<ArtistTitleSearchResult>> search(
+    String artist, String title, String releaseType
+  ) {
+    return Mono
+      .defer(() -> cache.get(artist, title)
+        .map(Mono::just)
+        .orElseGet(() -> load(artist, title)))
+      .map(candidates -> filter(candidates, releaseType))
+      .filter(candidates -> !candidates.isEmpty())
+      .switchIfEmpty(Mono.error(() -> new CustomDataNotFoundException(
+        "No " + (releaseType == null ? "" : "'" + releaseType + "' ")
+        + "results for '" + title + "' by '" + artist + "'"
+      )));
+  }
+
+  private Mono<List<ArtistTitleSearchResult>> load(String artist, String title) {
+    // concurrent equivalent searches share the same upstream request
+    final String key = searchKeys.key(artist, title);
+    return inFlight.join("candidates/" + key, () -> metallumService
+      .fetchSearchResponse(artist, title, maximumCandidates)
+      .map(response -> {
+        List<ArtistTitleSearchResult> candidates;
+        try {
+          candidates = rank(parser.getSearchResults(response, artist, title), artist, title);
+        } catch (CustomDataNotFoundException e) {
+          // cached as well, for the shorter not found time to live
+          candidates = List.of();
+        }
+
+        cache.put(artist, title, candidates);
+        return candidates;
+      })
+    );
+  }
+
+  private List<ArtistTitleSearchResult> filter(
+    List<ArtistTitleSearchResult> candidates, String releaseType
+  ) {
+    if (releaseType == null || releaseType.isBlank()) {
+      return candidates;
+    }
+
+    final String type = releaseType.trim();
+    return candidates.stream()
+      .filter(candidate -> type.equalsIgnoreCase(candidate.getReleaseType()))
+      .toList();
+  }
+
+  /**
+   * Sort the candidates by similarity to the searched artist name and
+   * release title. Equally similar candidates keep the upstream order.
+   *
+   * @param candidates  the candidates in the upstream order
+   * @param artist  the searched artist name
+   * @param title  the searched release title
+   * @return the ranked candidates
+   */
+  List<ArtistTitleSearchResult> rank(
+    List<ArtistTitleSearchResult> candidates, String artist, String title
+  ) {
+    final String searchedArtist = searchKeys.canonicalize(artist);
+    final String searchedTitle = searchKeys.canonicalize(title);
+
+    // the sort is stable
+    return candidates.stream()
+      .map(candidate -> new RankedCandidate(
+        candidate,
+        (similarity(searchedArtist, canonicalize(candidate.getArtist()))
+          + similarity(searchedTitle, canonicalize(candidate.getTitle()))) / 2
+      ))
+      .sorted(Comparator.comparingDouble(RankedCandidate::score).reversed())
+      .map(RankedCandidate::candidate)
+      .toList();
+  }
+
+  private String canonicalize(String value) {
+    return value == null ? "" : searchKeys.canonicalize(value);
+  }
+
+  /**
+   * Get the similarity of two values from their edit distance.
+   *
+   * @param a  the first value
+   * @param b  the second value
+   * @return the similarity, from zero for nothing in common to one for equal
+   *         values
+   */
+  static double similarity(String a, String b) {
+    final int length = Math.max(a.length(), b.length());
+    if (length == 0) {
+      return 1;
+    }
+
+    return 1 - (double) distance(a, b) / length;
+  }
+
+  // the Levenshtein distance, keeping only two rows of the matrix
+  private static int distance(String a, String b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      for (int j = 1; j <= b.length(); j++) {
+        final int substitution = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(
+          Math.min(current[j - 1] + 1, previous[j] + 1),
+          previous[j - 1] + substitution
+        );
+      }
+
+      final int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+
+    return previous[b.length()];
+  }
+
+  private record RankedCandidate(ArtistTitleSearchResult candidate, double score) {}
+}
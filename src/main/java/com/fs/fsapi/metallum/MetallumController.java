@@ -1,45 +1,90 @@
 package com.fs.fsapi.metallum;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import com.fs.fsapi.metallum.cache.StoredImage;
 import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
 import com.fs.fsapi.metallum.parser.LyricsResult;
+import com.fs.fsapi.metallum.parser.ReleaseDetailsResult;
 import com.fs.fsapi.metallum.parser.SongResult;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+/**
+ * Metallum endpoints. The endpoints return the reactive results of the
+ * service, so requests are processed asynchronously and do not hold a
+ * servlet thread while waiting for metallum. Images are returned as
+ * deferred results instead, to close them once the request completes.
+ */
 @RestController
 @RequestMapping("/metallum")
 @RequiredArgsConstructor
 public class MetallumController {
 
   private final MetallumService service;
+
+  private final MetallumBatchSearchService batchSearchService;
+
+  private final MetallumCandidateSearchService candidateSearchService;
   
   @GetMapping("/search")
-  public ResponseEntity<ArtistTitleSearchResult> search(
+  public Mono<ResponseEntity<ArtistTitleSearchResult>> search(
     @RequestParam String artist,
     @RequestParam String title
   ) {
-    return ResponseEntity
-      .ok()
-      .body(service.searchByArtistAndTitle(artist, title));
+    return service
+      .searchByArtistAndTitleReactive(artist, title)
+      .map(ResponseEntity::ok);
+  }
+
+  /**
+   * Search every candidate release, ranked by similarity to the searched
+   * artist and title, optionally narrowed by release type.
+   */
+  @GetMapping("/search/candidates")
+  public Mono<ResponseEntity<List<ArtistTitleSearchResult>>> searchCandidates(
+    @RequestParam String artist,
+    @RequestParam String title,
+    @RequestParam(required = false) String releaseType
+  ) {
+    return candidateSearchService
+      .search(artist, title, releaseType)
+      .map(ResponseEntity::ok);
+  }
+
+  /**
+   * Search many artist and title pairs at once. Results are streamed as
+   * newline delimited JSON, in the order the searches complete.
+   */
+  @PostMapping(path = "/search/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<ArtistTitleBatchSearchResult> searchBatch(
+    @RequestBody List<@Valid ArtistTitleSearchRequest> requests
+  ) {
+    return batchSearchService.search(requests);
   }
 
   // needed?
   @GetMapping("/logo/{artistId}")
-  public ResponseEntity<byte[]> searchArtistLogo(@PathVariable String artistId) {
-    return ResponseEntity
-      .ok()
-      .contentType(MediaType.IMAGE_JPEG)
-      .body(service.searchArtistLogo(artistId));
+  public DeferredResult<ResponseEntity<Resource>> searchArtistLogo(@PathVariable String artistId) {
+    return toImageResult(service.searchArtistLogoReactive(artistId));
   }
 
   @GetMapping("/logo/{artistId}/url")
@@ -51,11 +96,8 @@ public class MetallumController {
 
   // needed?
   @GetMapping("/cover/{titleId}")
-  public ResponseEntity<byte[]> searchTitleCover(@PathVariable String titleId) {
-    return ResponseEntity
-      .ok()
-      .contentType(MediaType.IMAGE_JPEG)
-      .body(service.searchTitleCover(titleId));
+  public DeferredResult<ResponseEntity<Resource>> searchTitleCover(@PathVariable String titleId) {
+    return toImageResult(service.searchTitleCoverReactive(titleId));
   }
 
   @GetMapping("/cover/{titleId}/url")
@@ -66,17 +108,77 @@ public class MetallumController {
   }
 
   @GetMapping("/songs/{titleId}")
-  public ResponseEntity<List<SongResult>> searchSongs(@PathVariable String titleId) {
-    return ResponseEntity
-      .ok()
-      .body(service.searchSongs(titleId));
+  public Mono<ResponseEntity<List<SongResult>>> searchSongs(@PathVariable String titleId) {
+    return service
+      .searchSongsReactive(titleId)
+      .map(ResponseEntity::ok);
+  }
+
+  /**
+   * Get release details, such as the release date, label and format. The
+   * details are read from the same page as the songs.
+   */
+  @GetMapping("/release/{titleId}")
+  public Mono<ResponseEntity<ReleaseDetailsResult>> searchReleaseDetails(@PathVariable String titleId) {
+    return service
+      .searchReleaseDetailsReactive(titleId)
+      .map(ResponseEntity::ok);
   }
 
   @GetMapping("/lyrics/{songId}")
-  public ResponseEntity<LyricsResult> searchSongLyrics(@PathVariable String songId) {
+  public Mono<ResponseEntity<LyricsResult>> searchSongLyrics(@PathVariable String songId) {
+    return service
+      .searchSongLyricsReactive(songId)
+      .map(ResponseEntity::ok);
+  }
+
+  /**
+   * Serve the opened image once emitted. The image is closed when the
+   * request completes, after the response is written or the request failed,
+   * or right away if it is emitted only after the request failed. The search
+   * is cancelled if the request times out or fails before.
+   *
+   * @param image  Mono emitting the opened image
+   * @return the deferred image response
+   */
+  private DeferredResult<ResponseEntity<Resource>> toImageResult(Mono<StoredImage> image) {
+    final DeferredResult<ResponseEntity<Resource>> result = new DeferredResult<>();
+    final AtomicReference<StoredImage> served = new AtomicReference<>();
+    result.onCompletion(() -> {
+      final StoredImage opened = served.get();
+      if (opened != null) {
+        opened.close();
+      }
+    });
+
+    final Disposable search = image.subscribe(
+      opened -> {
+        served.set(opened);
+        if (!result.setResult(toImageResponse(opened))) {
+          opened.close();
+        }
+      },
+      result::setErrorResult
+    );
+    result.onTimeout(search::dispose);
+    result.onError(e -> search.dispose());
+
+    return result;
+  }
+
+  /**
+   * Create a response streaming the opened image, the image is not read
+   * into memory. The content type follows the file extension kept from the
+   * upstream image path, as not every image is a JPEG.
+   * 
+   * @param image  the opened image
+   * @return the image response
+   */
+  private ResponseEntity<Resource> toImageResponse(StoredImage image) {
     return ResponseEntity
       .ok()
-      .body(service.searchSongLyrics(songId));
+      .contentType(MediaTypeFactory.getMediaType(image).orElse(MediaType.IMAGE_JPEG))
+      .body(image);
   }
   
 }
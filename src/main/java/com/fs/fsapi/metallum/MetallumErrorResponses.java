@@ -0,0 +1,45 @@
+package com.fs.fsapi.metallum;
+
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.exceptions.CustomMetallumUnavailableException;
+import com.fs.fsapi.exceptions.response.ErrorResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Describes the errors of metallum searches that are reported as a part of
+ * a response, instead of failing the whole response. Matches the statuses
+ * of {@link com.fs.fsapi.exceptions.CustomControllerAdvice}.
+ */
+@Slf4j
+final class MetallumErrorResponses {
+
+  private static final String FALL_BACK_MESSAGE = "Something went wrong";
+
+  private MetallumErrorResponses() {}
+
+  static ErrorResponse of(Throwable e) {
+    if (e instanceof CustomDataNotFoundException) {
+      return new ErrorResponse(HttpStatus.NOT_FOUND, e.getMessage());
+    } else if (e instanceof CustomMetallumUnavailableException) {
+      return new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+    } else if (e instanceof TimeoutException) {
+      return new ErrorResponse(HttpStatus.GATEWAY_TIMEOUT, "Metallum did not respond in time");
+    } else if (e instanceof WebClientResponseException ex) {
+      if (ex.getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
+        return new ErrorResponse(HttpStatus.NOT_FOUND, "Metallum resource not found");
+      }
+
+      log.error("Metallum responded with an error", e);
+      return new ErrorResponse(HttpStatus.BAD_GATEWAY, FALL_BACK_MESSAGE);
+    }
+
+    log.error("Metallum search failed", e);
+    return new ErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, FALL_BACK_MESSAGE);
+  }
+}
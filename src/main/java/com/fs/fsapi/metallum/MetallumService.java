@@ -1,24 +1,52 @@
 package com.fs.fsapi.metallum;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
 import com.fs.fsapi.metallum.cache.ArtistTitleSearchCache;
+import com.fs.fsapi.metallum.cache.CacheLookup;
+import com.fs.fsapi.metallum.cache.CanonicalSearchKeys;
+import com.fs.fsapi.metallum.cache.ImageDiskCache;
+import com.fs.fsapi.metallum.cache.LyricsCache;
+import com.fs.fsapi.metallum.cache.MetallumCacheMetrics;
+import com.fs.fsapi.metallum.cache.MetallumCacheType;
+import com.fs.fsapi.metallum.cache.PersistentMetallumCache;
+import com.fs.fsapi.metallum.cache.StoredImage;
+import com.fs.fsapi.metallum.cache.TitlePageCache;
+import com.fs.fsapi.metallum.client.DataBufferInputStream;
+import com.fs.fsapi.metallum.client.InFlightRequests;
+import com.fs.fsapi.metallum.client.MetallumCallPolicy;
+import com.fs.fsapi.metallum.client.MetallumCallPolicy.Operation;
 import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
 import com.fs.fsapi.metallum.parser.LyricsResult;
 import com.fs.fsapi.metallum.parser.MetallumParser;
+import com.fs.fsapi.metallum.parser.ReleaseDetailsResult;
 import com.fs.fsapi.metallum.parser.SongResult;
+import com.fs.fsapi.metallum.parser.TitlePageResult;
 import com.fs.fsapi.metallum.response.ArtistTitleSearchResponse;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-
-// TODO
-// - handle WebClientResponseException
-// - handle not found cases, etc...
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 @Slf4j
 @Service
@@ -33,50 +61,256 @@ public class MetallumService {
 
   private final ArtistTitleSearchCache cache;
 
+  private final CanonicalSearchKeys searchKeys;
+
+  private final InFlightRequests inFlight;
+
+  private final PersistentMetallumCache persistentCache;
+
+  private final ImageDiskCache imageCache;
+
+  private final TitlePageCache titlePageCache;
+
+  private final LyricsCache lyricsCache;
+
+  private final MetallumCacheMetrics metrics;
+
+  private final MetallumCallPolicy callPolicy;
+
+  private final Scheduler blockingScheduler;
+
   private final String IMAGE_EXTENSION = ".jpg"; // always?
+
+  private static final TypeReference<ArtistTitleSearchResult> SEARCH_RESULT_TYPE = new TypeReference<>() {};
+
+  private static final TypeReference<TitlePageResult> TITLE_PAGE_RESULT_TYPE = new TypeReference<>() {};
+
+  private static final TypeReference<LyricsResult> LYRICS_RESULT_TYPE = new TypeReference<>() {};
+
+  // the number of body buffers requested ahead of the parser
+  private static final int STREAMED_BUFFERS = 4;
   
   /**
    * Search basic release information. Contains links for the artist page and
-   * the release title page. Caches results to increase performance.
+   * the release title page. Caches results to increase performance, a stale
+   * cached result is returned immediately and refreshed in the background.
    * 
    * @param artist  the artist name
    * @param title  the release title
    * @return basic search result
+   * @throws CustomDataNotFoundException if the search has no results, also
+   *         when the missing result is cached
    */
   public ArtistTitleSearchResult searchByArtistAndTitle(String artist, String title) {
     // check if cached
-    var cached = cache.get(artist, title);
-    if (cached.isPresent()) {
-      //log.info("Cache hit!");
-      //return cached.get();
+    var cached = cache.lookup(artist, title);
+    if (cached.isEmpty()) {
+      // check if already known to have no results
+      var notFound = cache.getNotFound(artist, title);
+      if (notFound.isPresent()) {
+        throw new CustomDataNotFoundException(notFound.get());
+      }
+
+      // the cache puts the result, and makes concurrent misses wait for it,
+      // concurrent equivalent searches share the same upstream request
+      final String key = searchKeys.key(artist, title);
+      return cache.computeIfAbsent(
+        artist,
+        title,
+        (a, t) -> inFlight.join("search/" + key, () -> loadSearchResult(artist, title, key, false)).block()
+      );
     }
 
-    ArtistTitleSearchResponse response = webClient.get()
+    return searchCachedOrLoad(cached, artist, title).block();
+  }
+
+  /**
+   * Search basic release information without blocking, see
+   * {@link #searchByArtistAndTitle(String, String)}.
+   * 
+   * @param artist  the artist name
+   * @param title  the release title
+   * @return Mono emitting the basic search result, or a
+   *         {@link CustomDataNotFoundException} if the search has no results
+   */
+  public Mono<ArtistTitleSearchResult> searchByArtistAndTitleReactive(String artist, String title) {
+    return Mono.defer(() -> {
+      var cached = cache.lookup(artist, title);
+      if (cached.isEmpty()) {
+        var notFound = cache.getNotFound(artist, title);
+        if (notFound.isPresent()) {
+          return Mono.error(new CustomDataNotFoundException(notFound.get()));
+        }
+      }
+
+      return searchCachedOrLoad(cached, artist, title);
+    });
+  }
+
+  private Mono<ArtistTitleSearchResult> searchCachedOrLoad(
+    Optional<CacheLookup<ArtistTitleSearchResult>> cached,
+    String artist,
+    String title
+  ) {
+    // concurrent equivalent searches share the same upstream request
+    final String key = searchKeys.key(artist, title);
+    return cachedOrLoad(
+      cached,
+      "search/" + key,
+      refresh -> loadSearchResult(artist, title, key, refresh)
+        .doOnNext(result -> cache.put(artist, title, result))
+    );
+  }
+
+  private Mono<ArtistTitleSearchResult> loadSearchResult(
+    String artist, String title, String key, boolean refresh
+  ) {
+    return persisted(
+      MetallumCacheType.SEARCH,
+      key,
+      SEARCH_RESULT_TYPE,
+      refresh,
+      () -> fetchSearchResult(artist, title)
+    );
+  }
+
+  private Mono<ArtistTitleSearchResult> fetchSearchResult(String artist, String title) {
+    // only the first result is used
+    return fetchSearchResponse(artist, title, 1)
+      .map(response -> parseSearchResult(response, artist, title));
+  }
+
+  /**
+   * Request a page of search results. The response tells the total number
+   * of results, but contains at most the page size of them.
+   * 
+   * @param artist  the artist name
+   * @param title  the release title
+   * @param pageSize  the maximum number of results to return
+   * @return Mono emitting the search response
+   */
+  Mono<ArtistTitleSearchResponse> fetchSearchResponse(String artist, String title, int pageSize) {
+    return callPolicy.apply(Operation.SEARCH, webClient.get()
       .uri(uriBuilder -> uriBuilder
         .path("/search/ajax-advanced/searching/albums")
         .queryParam("bandName", artist)
         .queryParam("releaseTitle", title)
+        .queryParam("iDisplayLength", pageSize)
         .build())
       .accept(MediaType.APPLICATION_JSON)
       .retrieve()
-      .bodyToMono(ArtistTitleSearchResponse.class)
-      .block();
+      .bodyToMono(ArtistTitleSearchResponse.class));
+  }
 
-    ArtistTitleSearchResult result = parser.getSearchResult(response, artist, title);
+  private ArtistTitleSearchResult parseSearchResult(
+    ArtistTitleSearchResponse response, String artist, String title
+  ) {
+    try {
+      return parser.getSearchResult(response, artist, title);
+    } catch (CustomDataNotFoundException e) {
+      cache.putNotFound(artist, title);
+      throw e;
+    }
+  }
 
-    // update cache
-    cache.put(artist, title, result);
+  /**
+   * Return a cached value, or load it. Concurrent loads of the same key share
+   * the same request.
+   *
+   * <p>A stale value is returned immediately and a refresh is started in the
+   * background. The refresh loads the value from metallum, as the persistent
+   * cache outlives the in-memory one and would return the same stale value.
+   * If the refresh fails, for example while metallum is down, the stale
+   * value keeps being served until its grace period ends.
+   *
+   * @param <T>  the value type
+   * @param cached  the value found in the in-memory cache, if any
+   * @param key  the key identifying concurrent identical loads
+   * @param load  loads the value, from metallum if refreshing, and puts it
+   *              into the in-memory cache
+   * @return Mono emitting the value
+   */
+  private <T> Mono<T> cachedOrLoad(
+    Optional<CacheLookup<T>> cached,
+    String key,
+    Function<Boolean, Mono<T>> load
+  ) {
+    if (cached.isEmpty()) {
+      return inFlight.join(key, () -> load.apply(false));
+    }
+
+    if (cached.get().stale()) {
+      inFlight.join(key, () -> load.apply(true)).subscribe(
+        value -> {},
+        e -> log.info(
+          "Could not refresh stale '" + key + "', serving it until its "
+          + "grace period ends: " + e.getMessage()
+        )
+      );
+    }
 
-    return result;
+    return Mono.just(cached.get().value());
   }
 
   /**
-   * Search artist logo image.
+   * Get a value from the persistent cache, or load it and write it to the
+   * persistent cache. The persistent cache blocks, so it is read and written
+   * on the blocking scheduler, outside of the event loop.
+   * 
+   * @param <T>  the value type
+   * @param type  the kind of the value
+   * @param key  the persistent cache key
+   * @param valueType  the value type
+   * @param refresh  whether to skip reading the persistent cache, the loaded
+   *                 value overwrites the persisted one
+   * @param loader  loads the value from metallum
+   * @return Mono emitting the value
+   */
+  private <T> Mono<T> persisted(
+    MetallumCacheType type,
+    String key,
+    TypeReference<T> valueType,
+    boolean refresh,
+    Supplier<Mono<T>> loader
+  ) {
+    final Mono<T> load = metrics.timeLoad(type.getId(), Mono.defer(loader));
+    if (!persistentCache.isEnabled()) {
+      return load;
+    }
+
+    final Mono<T> loadAndPersist = load
+      .publishOn(blockingScheduler)
+      .doOnNext(value -> persistentCache.put(type, key, value));
+    if (refresh) {
+      return loadAndPersist;
+    }
+
+    return Mono
+      .fromCallable(() -> persistentCache.get(type, key, valueType))
+      .subscribeOn(blockingScheduler)
+      .flatMap(Mono::justOrEmpty)
+      .switchIfEmpty(loadAndPersist);
+  }
+
+  /**
+   * Search artist logo image. The image is downloaded only if it is not
+   * stored on disk already.
    * 
    * @param id  the artist id
-   * @return the image
+   * @return the opened image, to be closed by the caller once read
    */
-  public byte[] searchArtistLogo(String id) {
+  public StoredImage searchArtistLogo(String id) {
+    return searchImage(getArtistLogoPath(id)).block();
+  }
+
+  /**
+   * Search artist logo image without blocking, see
+   * {@link #searchArtistLogo(String)}.
+   * 
+   * @param id  the artist id
+   * @return Mono emitting the opened image
+   */
+  public Mono<StoredImage> searchArtistLogoReactive(String id) {
     return searchImage(getArtistLogoPath(id));
   }
 
@@ -91,12 +325,24 @@ public class MetallumService {
   }
 
   /**
-   * Search release title cover image.
+   * Search release title cover image. The image is downloaded only if it is
+   * not stored on disk already.
    * 
    * @param id  the release title id
-   * @return the image
+   * @return the opened image, to be closed by the caller once read
    */
-  public byte[] searchTitleCover(String id) {
+  public StoredImage searchTitleCover(String id) {
+    return searchImage(getTitleCoverPath(id)).block();
+  }
+
+  /**
+   * Search release title cover image without blocking, see
+   * {@link #searchTitleCover(String)}.
+   * 
+   * @param id  the release title id
+   * @return Mono emitting the opened image
+   */
+  public Mono<StoredImage> searchTitleCoverReactive(String id) {
     return searchImage(getTitleCoverPath(id));
   }
 
@@ -110,15 +356,35 @@ public class MetallumService {
     return METALLUM_BASE_URL + getTitleCoverPath(id);
   }
 
-  private byte[] searchImage(String imagePath) {
-    return webClient.get()
-      .uri(uriBuilder -> uriBuilder
-        .path(imagePath)
-        .build())
-      .accept(MediaType.IMAGE_JPEG)
-      .retrieve()
-      .bodyToMono(byte[].class)
-      .block();
+  private Mono<StoredImage> searchImage(String imagePath) {
+    // images are stored by their upstream file name
+    final String filename = imagePath.substring(imagePath.lastIndexOf("/") + 1);
+
+    // opened right away, so that a later eviction does not delete the file
+    // before it is read
+    final Mono<StoredImage> stored = Mono
+      .fromCallable(() -> imageCache.open(filename).orElse(null));
+
+    // the image is streamed to its file, and never held in memory as a whole
+    final Mono<Path> load = inFlight.join(imagePath, () -> metrics
+      .timeLoad(imageCache.getName(), callPolicy.apply(
+        Operation.IMAGES,
+        imageCache.put(filename, webClient.get()
+          .uri(uriBuilder -> uriBuilder
+            .path(imagePath)
+            .build())
+          .accept(MediaType.IMAGE_JPEG)
+          .retrieve()
+          .bodyToFlux(DataBuffer.class))))
+      .subscribeOn(blockingScheduler));
+
+    return stored
+      .switchIfEmpty(load.then(stored))
+      // evicted by concurrent downloads before it could be opened
+      .repeatWhenEmpty(1, repeats -> repeats)
+      .subscribeOn(blockingScheduler)
+      // opened but cancelled before it is emitted
+      .doOnDiscard(StoredImage.class, StoredImage::close);
   }
 
   /**
@@ -132,13 +398,33 @@ public class MetallumService {
   }
 
   /**
-   * Get the path of the release title cover image. 
+   * Get the path of the release title cover image. The path linked from a
+   * cached release title page is used if known, as the image is not always
+   * a jpg file, otherwise the path is constructed from the id.
    * 
    * @param id  the release title id
    * @return the path image
    */
   private String getTitleCoverPath(String id) {
-    return constructImagePath(id) + IMAGE_EXTENSION;
+    return titlePageCache.inspect(id)
+      .flatMap(page -> toMetallumPath(page.getDetails().getCoverUrl()))
+      .orElseGet(() -> constructImagePath(id) + IMAGE_EXTENSION);
+  }
+
+  /**
+   * Get the path of a metallum url, without the query.
+   * 
+   * @param url  the url, may be {@code null}
+   * @return Optional containing the path, if the url is a metallum url
+   */
+  private static Optional<String> toMetallumPath(String url) {
+    if (url == null || !url.startsWith(METALLUM_BASE_URL + "/")) {
+      return Optional.empty();
+    }
+
+    final String path = url.substring(METALLUM_BASE_URL.length());
+    final int query = path.indexOf('?');
+    return Optional.of(query < 0 ? path : path.substring(0, query));
   }
 
   /**
@@ -168,7 +454,8 @@ public class MetallumService {
   }
 
   /**
-   * Search songs by artist name and release title.
+   * Search songs by artist name and release title. Caches results to
+   * increase performance, stale results are refreshed in the background.
    * 
    * @param titleId  the release title id
    * @return  a list containing the details of each song
@@ -176,37 +463,136 @@ public class MetallumService {
    * {@link ArtistTitleSearchResult#getTitleHref()}
    */
   public List<SongResult> searchSongs(String titleId) {
+    return searchSongsReactive(titleId).block();
+  }
+
+  /**
+   * Search songs without blocking, see {@link #searchSongs(String)}.
+   * 
+   * @param titleId  the release title id
+   * @return Mono emitting the details of each song
+   */
+  public Mono<List<SongResult>> searchSongsReactive(String titleId) {
+    return searchTitlePageReactive(titleId).map(TitlePageResult::getSongs);
+  }
+
+  /**
+   * Search release details, such as the release date, label and format,
+   * without blocking. The details are read from the same release title page
+   * as the songs.
+   * 
+   * @param titleId  the release title id
+   * @return Mono emitting the release details
+   */
+  public Mono<ReleaseDetailsResult> searchReleaseDetailsReactive(String titleId) {
+    return searchTitlePageReactive(titleId).map(TitlePageResult::getDetails);
+  }
+
+  /**
+   * Search the release title page, with the songs, the release details and
+   * the cover image link, without blocking. Caches results to increase
+   * performance, stale results are refreshed in the background, so the
+   * page is downloaded once for every use.
+   * 
+   * @param titleId  the release title id
+   * @return Mono emitting the parsed title page
+   */
+  public Mono<TitlePageResult> searchTitlePageReactive(String titleId) {
     // only title id seems to be required,
     // artist and title can be empty...
-    final String html = webClient.get()
-      .uri(uriBuilder -> uriBuilder
-        .path("/albums/{artist}/{title}/{titleId}") 
-        .build("", "", titleId))
-      .accept(MediaType.TEXT_HTML)
-      .retrieve()
-      .bodyToMono(String.class)
-      .block();
+    return Mono.defer(() -> cachedOrLoad(
+      titlePageCache.lookup(titleId),
+      "title-page/" + titleId,
+      refresh -> persisted(
+          MetallumCacheType.TITLE_PAGES,
+          titleId,
+          TITLE_PAGE_RESULT_TYPE,
+          refresh,
+          () -> callPolicy.apply(Operation.SONGS, webClient.get()
+            .uri(uriBuilder -> uriBuilder
+              .path("/albums/{artist}/{title}/{titleId}") 
+              .build("", "", titleId))
+            .accept(MediaType.TEXT_HTML)
+            .retrieve()
+            .toEntityFlux(DataBuffer.class)
+            .flatMap(response -> parseStreamed(response, parser::parseTitlePage))))
+        .doOnNext(page -> titlePageCache.put(titleId, page))
+    ));
+  }
 
-    return parser.parseSongs(html);
+  /**
+   * Parse a response body while it is received. The body is read through a
+   * blocking reader on the blocking scheduler, which requests more of the
+   * body only as the parser reads it. Closing the reader cancels the rest
+   * of the body, so a parser returning early stops the download.
+   * 
+   * @param <T>  the parse result type
+   * @param response  the response, with the body not read yet
+   * @param parse  parses the body
+   * @return Mono emitting the parse result
+   */
+  private <T> Mono<T> parseStreamed(
+    ResponseEntity<Flux<DataBuffer>> response,
+    Function<Reader, T> parse
+  ) {
+    final Charset charset = Optional
+      .ofNullable(response.getHeaders().getContentType())
+      .map(MediaType::getCharset)
+      .orElse(StandardCharsets.UTF_8);
+
+    return Mono
+      .using(
+        () -> new DataBufferInputStream(response.getBody(), STREAMED_BUFFERS),
+        body -> Mono.fromCallable(() -> parse.apply(new InputStreamReader(body, charset))),
+        MetallumService::closeQuietly
+      )
+      .subscribeOn(blockingScheduler);
+  }
+
+  private static void closeQuietly(InputStream body) {
+    try {
+      body.close();
+    } catch (IOException e) {
+      log.debug("Could not close response body: " + e.getMessage());
+    }
   }
 
   /**
-   * Search song lyrics by song id.
+   * Search song lyrics by song id. Caches results to increase performance,
+   * stale results are refreshed in the background.
    * 
    * @param songId  the song id
    * @return html string containing the lyrics, or html string describing
    *         the lyrics were not found
    */
   public LyricsResult searchSongLyrics(String songId) {
-    final String html = webClient.get()
-      .uri(uriBuilder -> uriBuilder
-        .path("/release/ajax-view-lyrics/id/{songId}")
-        .build(songId))
-      .accept(MediaType.TEXT_HTML)
-      .retrieve()
-      .bodyToMono(String.class)
-      .block();
+    return searchSongLyricsReactive(songId).block();
+  }
 
-    return parser.parseLyrics(html);
+  /**
+   * Search song lyrics without blocking, see {@link #searchSongLyrics(String)}.
+   * 
+   * @param songId  the song id
+   * @return Mono emitting the lyrics
+   */
+  public Mono<LyricsResult> searchSongLyricsReactive(String songId) {
+    return Mono.defer(() -> cachedOrLoad(
+      lyricsCache.lookup(songId),
+      "lyrics/" + songId,
+      refresh -> persisted(
+          MetallumCacheType.LYRICS,
+          songId,
+          LYRICS_RESULT_TYPE,
+          refresh,
+          () -> callPolicy.apply(Operation.LYRICS, webClient.get()
+            .uri(uriBuilder -> uriBuilder
+              .path("/release/ajax-view-lyrics/id/{songId}")
+              .build(songId))
+            .accept(MediaType.TEXT_HTML)
+            .retrieve()
+            .bodyToMono(String.class))
+            .map(parser::parseLyrics))
+        .doOnNext(lyrics -> lyricsCache.put(songId, lyrics))
+    ));
   }
 }
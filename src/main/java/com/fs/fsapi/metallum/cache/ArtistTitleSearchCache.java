@@ -1,45 +1,282 @@
 package com.fs.fsapi.metallum.cache;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiFunction;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
 import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
 
-import lombok.RequiredArgsConstructor;
+/**
+ * Bounded cache for search results by artist name and release title. Entries
+ * expire after a configured time to live.
+ *
+ * <p>Searches without any results are cached as well, so that repeated
+ * searches with the same misspelled values are not sent to metallum again.
+ * These entries have their own, usually shorter, time to live. Only the
+ * missing result is cached, its message names the artist and title of the
+ * search looking it up, which may be spelled differently.
+ *
+ * <p>Expired search results are kept for a stale grace period, so that they
+ * can be served while they are refreshed.
+ *
+ * <p>Optionally search results evicted for lack of space are kept off-heap.
+ *
+ * <p>Artist names and release titles are keyed by their canonical form, see
+ * {@link CanonicalSearchKeys}.
+ */
+@Service
+public class ArtistTitleSearchCache
+  implements DoubleKeyMap<String, String, ArtistTitleSearchResult>, MonitoredCache {
 
-// TODO add "time limit"?
+  private final ExpiringLruCache<ArtistTitleKey, CachedSearch> cache;
 
-@Service
-@RequiredArgsConstructor
-public class ArtistTitleSearchCache implements DoubleKeyMap<String, String, ArtistTitleSearchResult> {
+  private final Duration notFoundTimeToLive;
+
+  private final CanonicalSearchKeys keys;
 
-  private final Map<String, Map<String, ArtistTitleSearchResult>> cache;
+  public ArtistTitleSearchCache(
+    CanonicalSearchKeys keys,
+    @Value("${metallum.cache.search.maximum-size:1000}") int maximumSize,
+    @Value("${metallum.cache.search.time-to-live:6h}") Duration timeToLive,
+    @Value("${metallum.cache.search.not-found-time-to-live:10m}") Duration notFoundTimeToLive,
+    @Value("${metallum.cache.search.stale-grace-period:1d}") Duration staleGracePeriod,
+    @Value("${metallum.cache.search.off-heap-size:0B}") DataSize offHeapSize
+  ) {
+    this.cache = new ExpiringLruCache<>(
+      maximumSize,
+      timeToLive,
+      staleGracePeriod,
+      CachedSearch::estimateSize
+    );
+
+    if (offHeapSize.toBytes() > 0) {
+      cache.enableOffHeapTier(offHeapSize.toBytes(), new CachedSearchCodec());
+    }
+    this.notFoundTimeToLive = notFoundTimeToLive;
+    this.keys = keys;
+  }
 
   @Override
   public void put(String artist, String title, ArtistTitleSearchResult result) {
-    if (!cache.containsKey(artist)) {
-      cache.put(artist, new HashMap<>());
-    }
+    cache.put(key(artist, title), new CachedSearch(result));
+  }
 
-    cache.get(artist).put(title, result);
+  /**
+   * Cache a search that did not have any results.
+   *
+   * @param artist  the artist name
+   * @param title  the release title
+   */
+  public void putNotFound(String artist, String title) {
+    cache.put(
+      key(artist, title),
+      new CachedSearch(null),
+      notFoundTimeToLive
+    );
   }
 
   @Override
   public Optional<ArtistTitleSearchResult> get(String artist, String title) {
-    if (cache.containsKey(artist)) {
-      if (cache.get(artist).containsKey(title)) {
-        return Optional.of(cache.get(artist).get(title));
-      }
+    return cache.get(key(artist, title))
+      .map(CachedSearch::result);
+  }
+
+  @Override
+  public Map<DoubleKey<String, String>, ArtistTitleSearchResult> getAll(
+    Collection<DoubleKey<String, String>> keys
+  ) {
+    final Map<DoubleKey<String, String>, ArtistTitleSearchResult> results = new HashMap<>();
+    for (DoubleKey<String, String> key : keys) {
+      get(key.key1(), key.key2()).ifPresent(result -> results.put(key, result));
     }
 
-    return Optional.empty();
+    return results;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Concurrent calls for equivalent searches wait for the same load,
+   * without locking searches of other artists and titles.
+   *
+   * @throws CustomDataNotFoundException if the search is cached as not
+   *         having results
+   */
+  @Override
+  public ArtistTitleSearchResult computeIfAbsent(
+    String artist,
+    String title,
+    BiFunction<? super String, ? super String, ? extends ArtistTitleSearchResult> loader
+  ) {
+    final CachedSearch search = cache.computeIfAbsent(
+      key(artist, title),
+      key -> new CachedSearch(
+        Objects.requireNonNull(loader.apply(artist, title), "Expected search result")
+      )
+    );
+
+    if (search.result() == null) {
+      throw new CustomDataNotFoundException(notFoundMessage(artist, title));
+    }
+
+    return search.result();
+  }
+
+  /**
+   * Get the cached search result, also when it is stale.
+   *
+   * @param artist  the artist name
+   * @param title  the release title
+   * @return Optional containing the search result and whether it is stale
+   */
+  public Optional<CacheLookup<ArtistTitleSearchResult>> lookup(String artist, String title) {
+    return cache.lookup(key(artist, title))
+      .filter(lookup -> lookup.value().result() != null)
+      .map(lookup -> lookup.map(CachedSearch::result));
+  }
+
+  /**
+   * Get the message of a cached search that did not have any results.
+   *
+   * @param artist  the artist name
+   * @param title  the release title
+   * @return Optional containing the message naming the given artist and
+   *         title, if the search is cached as not found
+   */
+  public Optional<String> getNotFound(String artist, String title) {
+    return cache.getQuietly(key(artist, title))
+      .filter(search -> search.result() == null)
+      .map(search -> notFoundMessage(artist, title));
+  }
+
+  /**
+   * Get the cached search without affecting the statistics.
+   *
+   * @param artist  the artist name
+   * @param title  the release title
+   * @return Optional containing either the search result or the message of
+   *         a search without results
+   */
+  public Optional<Object> inspect(String artist, String title) {
+    return cache.getQuietly(key(artist, title))
+      .map(search -> search.result() != null
+        ? search.result()
+        : notFoundMessage(artist, title));
+  }
+
+  @Override
+  public void invalidate(String artist, String title) {
+    cache.invalidate(key(artist, title));
+  }
+
+  @Override
+  public void invalidateAll(String artist) {
+    final String canonicalArtist = keys.canonicalize(artist);
+    cache.invalidateIf(key -> key.artist().equals(canonicalArtist));
   }
 
   @Override
   public void clear() {
     cache.clear();
   }
+
+  @Override
+  public String getName() {
+    return MetallumCacheType.SEARCH.getId();
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return cache.getStats();
+  }
+
+  @Override
+  public long size() {
+    return cache.size();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    return cache.getEstimatedBytes();
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+    return cache.getOffHeapBytes();
+  }
+
+  private static String notFoundMessage(String artist, String title) {
+    return "No results for '" + title + "' by '" + artist + "'";
+  }
+
+  private ArtistTitleKey key(String artist, String title) {
+    return new ArtistTitleKey(keys.canonicalize(artist), keys.canonicalize(title));
+  }
+
+  private record ArtistTitleKey(String artist, String title) {}
+
+  // the result is null for a search without results
+  private record CachedSearch(ArtistTitleSearchResult result) {
+
+    private long estimateSize() {
+      if (result == null) {
+        return SizeEstimates.OBJECT;
+      }
+
+      return 3 * SizeEstimates.OBJECT + SizeEstimates.of(
+        result.getArtist(),
+        result.getArtistHref(),
+        result.getTitle(),
+        result.getTitleHref(),
+        result.getReleaseType()
+      );
+    }
+  }
+
+  private static class CachedSearchCodec implements OffHeapCodec<CachedSearch> {
+
+    @Override
+    public void write(CachedSearch search, DataOutput out) throws IOException {
+      final ArtistTitleSearchResult result = search.result();
+      out.writeBoolean(result != null);
+      if (result == null) {
+        return;
+      }
+
+      out.writeUTF(result.getArtist());
+      out.writeUTF(result.getArtistHref());
+      out.writeUTF(result.getTitle());
+      out.writeUTF(result.getTitleHref());
+      OffHeapCodec.writeNullable(out, result.getReleaseType());
+    }
+
+    @Override
+    public CachedSearch read(DataInput in) throws IOException {
+      if (!in.readBoolean()) {
+        return new CachedSearch(null);
+      }
+
+      return new CachedSearch(
+        new ArtistTitleSearchResult(
+          in.readUTF(),
+          in.readUTF(),
+          in.readUTF(),
+          in.readUTF(),
+          OffHeapCodec.readNullable(in)
+        )
+      );
+    }
+  }
 }
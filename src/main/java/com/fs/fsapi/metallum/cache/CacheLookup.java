@@ -0,0 +1,18 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.util.function.Function;
+
+/**
+ * Value found in a cache, together with whether its time to live has passed.
+ * Stale values are still usable while they are refreshed.
+ *
+ * @param <V>  the value type
+ * @param value  the cached value
+ * @param stale  whether the time to live of the value has passed
+ */
+public record CacheLookup<V>(V value, boolean stale) {
+
+  public <R> CacheLookup<R> map(Function<? super V, ? extends R> mapper) {
+    return new CacheLookup<>(mapper.apply(value), stale);
+  }
+}
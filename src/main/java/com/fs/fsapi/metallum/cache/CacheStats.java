@@ -0,0 +1,45 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative statistics of a cache.
+ */
+public class CacheStats {
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  void recordHit() {
+    hits.increment();
+  }
+
+  void recordMiss() {
+    misses.increment();
+  }
+
+  void recordEviction() {
+    evictions.increment();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Get the number of entries removed because the cache was full or the
+   * entry had expired. Explicit invalidations are not counted.
+   *
+   * @return the number of evictions
+   */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+}
@@ -0,0 +1,66 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates canonical forms of artist names and release titles, so that
+ * searches metallum answers the same way share the same cache entries and
+ * upstream requests. For example {@code "Iron Maiden"} and
+ * {@code " iron  MAIDEN"}, or the composed and decomposed forms of
+ * {@code "Motörhead"}, have the same canonical form.
+ *
+ * <p>The value is normalized to Unicode NFKC, case folded, trimmed and its
+ * whitespace runs are collapsed to a single space. Optionally punctuation
+ * and symbols are stripped as well, making for example {@code "AC/DC"} and
+ * {@code "ACDC"} equal.
+ */
+@Component
+public class CanonicalSearchKeys {
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private static final Pattern PUNCTUATION = Pattern.compile("[\\p{P}\\p{S}]+");
+
+  private final boolean stripPunctuation;
+
+  public CanonicalSearchKeys(
+    @Value("${metallum.cache.search.strip-punctuation:false}") boolean stripPunctuation
+  ) {
+    this.stripPunctuation = stripPunctuation;
+  }
+
+  /**
+   * Get the canonical form of an artist name or a release title.
+   *
+   * @param value  the value
+   * @return the canonical value
+   */
+  public String canonicalize(String value) {
+    String result = Normalizer.normalize(value, Normalizer.Form.NFKC);
+
+    // upper casing first folds for example 'ß' to "ss"
+    result = result.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+
+    if (stripPunctuation) {
+      result = PUNCTUATION.matcher(result).replaceAll("");
+    }
+
+    return WHITESPACE.matcher(result).replaceAll(" ").trim();
+  }
+
+  /**
+   * Get a single key for a search by artist name and release title.
+   *
+   * @param artist  the artist name
+   * @param title  the release title
+   * @return the canonical key
+   */
+  public String key(String artist, String title) {
+    return canonicalize(artist) + "\n" + canonicalize(title);
+  }
+}
@@ -0,0 +1,155 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.fs.fsapi.metallum.parser.LyricsResult;
+
+/**
+ * Compact form of a {@link LyricsResult}. The lyric rows are joined into a
+ * single UTF-8 buffer instead of one {@code String} for each row, and the
+ * buffer is deflated when that makes it smaller.
+ */
+final class CompressedLyrics {
+
+  // can not appear in the trimmed rows of parsed lyrics
+  private static final String ROW_SEPARATOR = "\u001E";
+
+  // deflating shorter buffers rarely saves anything
+  private static final int MINIMUM_DEFLATED_LENGTH = 128;
+
+  static final OffHeapCodec<CompressedLyrics> CODEC = new OffHeapCodec<>() {
+
+    @Override
+    public void write(CompressedLyrics lyrics, DataOutput out) throws IOException {
+      OffHeapCodec.writeNullable(out, lyrics.error);
+      out.writeInt(lyrics.rowCount);
+      out.writeInt(lyrics.length);
+      out.writeBoolean(lyrics.deflated);
+      out.writeInt(lyrics.data.length);
+      out.write(lyrics.data);
+    }
+
+    @Override
+    public CompressedLyrics read(DataInput in) throws IOException {
+      final String error = OffHeapCodec.readNullable(in);
+      final int rowCount = in.readInt();
+      final int length = in.readInt();
+      final boolean deflated = in.readBoolean();
+      final byte[] data = new byte[in.readInt()];
+      in.readFully(data);
+
+      return new CompressedLyrics(error, rowCount, length, data, deflated);
+    }
+  };
+
+  private final String error;
+
+  private final int rowCount;
+
+  private final int length;
+
+  private final byte[] data;
+
+  private final boolean deflated;
+
+  private CompressedLyrics(String error, int rowCount, int length, byte[] data, boolean deflated) {
+    this.error = error;
+    this.rowCount = rowCount;
+    this.length = length;
+    this.data = data;
+    this.deflated = deflated;
+  }
+
+  static CompressedLyrics compress(LyricsResult lyrics) {
+    final List<String> rows = lyrics.getLyrics();
+    final byte[] text = String.join(ROW_SEPARATOR, rows)
+      .getBytes(StandardCharsets.UTF_8);
+
+    if (text.length >= MINIMUM_DEFLATED_LENGTH) {
+      final byte[] compressed = deflate(text);
+      if (compressed.length < text.length) {
+        return new CompressedLyrics(lyrics.getError(), rows.size(), text.length, compressed, true);
+      }
+    }
+
+    return new CompressedLyrics(lyrics.getError(), rows.size(), text.length, text, false);
+  }
+
+  LyricsResult decompress() {
+    final List<String> rows = new ArrayList<>(rowCount);
+    if (rowCount > 0) {
+      final String text = new String(
+        deflated ? inflate(data, length) : data,
+        StandardCharsets.UTF_8
+      );
+
+      rows.addAll(Arrays.asList(text.split(ROW_SEPARATOR, -1)));
+    }
+
+    return new LyricsResult(error, rows);
+  }
+
+  /**
+   * Get the number of bytes held for the lyric rows.
+   *
+   * @return the number of bytes
+   */
+  int getDataLength() {
+    return data.length;
+  }
+
+  private static byte[] deflate(byte[] input) {
+    final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    try {
+      deflater.setInput(input);
+      deflater.finish();
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+      final byte[] buffer = new byte[1024];
+      while (!deflater.finished()) {
+        final int count = deflater.deflate(buffer);
+        out.write(buffer, 0, count);
+      }
+
+      return out.toByteArray();
+
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] input, int length) {
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(input);
+
+      final byte[] output = new byte[length];
+      int offset = 0;
+      while (offset < length && !inflater.finished()) {
+        final int count = inflater.inflate(output, offset, length - offset);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new DataFormatException("Unexpected end of compressed lyrics");
+        }
+
+        offset += count;
+      }
+
+      return output;
+
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Compressed lyrics are corrupted", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
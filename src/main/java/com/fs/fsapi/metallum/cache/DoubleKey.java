@@ -0,0 +1,11 @@
+package com.fs.fsapi.metallum.cache;
+
+/**
+ * Key pair of a {@link DoubleKeyMap}.
+ *
+ * @param <K1>  the first key type
+ * @param <K2>  the second key type
+ * @param key1  the first key
+ * @param key2  the second key
+ */
+public record DoubleKey<K1, K2>(K1 key1, K2 key2) {}
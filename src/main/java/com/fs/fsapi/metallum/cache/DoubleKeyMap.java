@@ -1,6 +1,9 @@
 package com.fs.fsapi.metallum.cache;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
 
 public interface DoubleKeyMap<K1, K2, T> {
 
@@ -8,7 +11,33 @@ public interface DoubleKeyMap<K1, K2, T> {
 
   public Optional<T> get(K1 key1, K2 key2);
 
-  //public void clear(K1 key1, K2 key2);
+  /**
+   * Get the values of several key pairs.
+   *
+   * @param keys  the key pairs
+   * @return the values found, by key pair
+   */
+  public Map<DoubleKey<K1, K2>, T> getAll(Collection<DoubleKey<K1, K2>> keys);
+
+  /**
+   * Get the value of the key pair, or load and put it if it is absent.
+   * Concurrent calls for the same key pair load the value only once.
+   *
+   * @param key1  the first key
+   * @param key2  the second key
+   * @param loader  loads the value
+   * @return the present or loaded value
+   */
+  public T computeIfAbsent(K1 key1, K2 key2, BiFunction<? super K1, ? super K2, ? extends T> loader);
+
+  public void invalidate(K1 key1, K2 key2);
+
+  /**
+   * Remove the values of every key pair with the first key.
+   *
+   * @param key1  the first key
+   */
+  public void invalidateAll(K1 key1);
 
   public void clear();
 
@@ -0,0 +1,648 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe in-memory cache with a maximum entry count and a time to live
+ * for each entry. When the cache is full, the least recently used entry is
+ * evicted. Expired entries are not returned by {@link #get(Object)} and are
+ * removed lazily.
+ *
+ * <p>Optionally expired entries are kept for a stale grace period, during
+ * which {@link #lookup(Object)} still returns them marked as stale. This
+ * allows serving the stale value while it is refreshed, or while the source
+ * of the value is failing.
+ *
+ * <p>Larger caches are split into segments by key hash, each with its own
+ * lock, share of the maximum size and least recently used order, so that
+ * threads working on different keys rarely contend. Loads started with
+ * {@link #computeIfAbsent(Object, Function)} do not hold any lock.
+ *
+ * <p>Optionally entries evicted for lack of space are moved to an off-heap
+ * tier, see {@link OffHeapStore}, and moved back when they are looked up
+ * again. This allows holding more entries than the heap would. Entries are
+ * moved between the tiers while holding the lock of their segment, so that
+ * a key is never in both tiers, and a moved entry can not overwrite a
+ * concurrent put or invalidation.
+ *
+ * <p>Records hit, miss and eviction counts, and keeps a running estimate of
+ * the memory used by the values.
+ *
+ * @param <K>  the key type
+ * @param <V>  the value type
+ */
+public class ExpiringLruCache<K, V> {
+
+  private static final int MAXIMUM_SEGMENTS = 16;
+
+  private static final int MINIMUM_SEGMENT_SIZE = 64;
+
+  private final int maximumSize;
+
+  private final long timeToLiveNanos;
+
+  private final long staleGraceNanos;
+
+  private final ToLongFunction<? super V> weigher;
+
+  private final LongSupplier ticker;
+
+  private final CacheStats stats = new CacheStats();
+
+  private final List<Segment> segments;
+
+  private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+  private volatile OffHeapStore<K, V> offHeap;
+
+  /**
+   *
+   * @param maximumSize  the maximum number of entries, must be positive
+   * @param timeToLive  how long an entry is returned after it was put,
+   *                    must be positive
+   */
+  public ExpiringLruCache(int maximumSize, Duration timeToLive) {
+    this(maximumSize, timeToLive, value -> 0, System::nanoTime);
+  }
+
+  /**
+   *
+   * @param maximumSize  the maximum number of entries, must be positive
+   * @param timeToLive  how long an entry is returned after it was put,
+   *                    must be positive
+   * @param weigher  estimates the memory used by a value in bytes
+   */
+  public ExpiringLruCache(int maximumSize, Duration timeToLive, ToLongFunction<? super V> weigher) {
+    this(maximumSize, timeToLive, Duration.ZERO, weigher, System::nanoTime);
+  }
+
+  /**
+   *
+   * @param maximumSize  the maximum number of entries, must be positive
+   * @param timeToLive  how long an entry is returned after it was put,
+   *                    must be positive
+   * @param staleGracePeriod  how long an expired entry is still returned
+   *                          as stale, must not be negative
+   * @param weigher  estimates the memory used by a value in bytes
+   */
+  public ExpiringLruCache(
+    int maximumSize,
+    Duration timeToLive,
+    Duration staleGracePeriod,
+    ToLongFunction<? super V> weigher
+  ) {
+    this(maximumSize, timeToLive, staleGracePeriod, weigher, System::nanoTime);
+  }
+
+  ExpiringLruCache(int maximumSize, Duration timeToLive, LongSupplier ticker) {
+    this(maximumSize, timeToLive, Duration.ZERO, value -> 0, ticker);
+  }
+
+  ExpiringLruCache(
+    int maximumSize,
+    Duration timeToLive,
+    ToLongFunction<? super V> weigher,
+    LongSupplier ticker
+  ) {
+    this(maximumSize, timeToLive, Duration.ZERO, weigher, ticker);
+  }
+
+  ExpiringLruCache(
+    int maximumSize,
+    Duration timeToLive,
+    Duration staleGracePeriod,
+    ToLongFunction<? super V> weigher,
+    LongSupplier ticker
+  ) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException(
+        "Expected maximum size '" + maximumSize + "' to be positive"
+      );
+    } else if (timeToLive.isNegative() || timeToLive.isZero()) {
+      throw new IllegalArgumentException(
+        "Expected time to live '" + timeToLive + "' to be positive"
+      );
+    } else if (staleGracePeriod.isNegative()) {
+      throw new IllegalArgumentException(
+        "Expected stale grace period '" + staleGracePeriod + "' not to be negative"
+      );
+    }
+
+    this.maximumSize = maximumSize;
+    this.timeToLiveNanos = timeToLive.toNanos();
+    this.staleGraceNanos = staleGracePeriod.toNanos();
+    this.weigher = weigher;
+    this.ticker = ticker;
+
+    // a power of two, so that a segment can be selected by masking the hash
+    final int segmentCount = Integer.highestOneBit(Math.max(1,
+      Math.min(MAXIMUM_SEGMENTS, maximumSize / MINIMUM_SEGMENT_SIZE)
+    ));
+
+    this.segments = new ArrayList<>(segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      // spread the remainder, so that the sizes add up to the maximum size
+      final int segmentSize = maximumSize / segmentCount
+        + (i < maximumSize % segmentCount ? 1 : 0);
+      segments.add(new Segment(segmentSize));
+    }
+  }
+
+  /**
+   * Move the entries evicted for lack of space to an off-heap tier instead
+   * of dropping them. Must be called before the cache is used.
+   *
+   * @param maximumBytes  the maximum off-heap memory
+   * @param codec  the binary form of the values
+   */
+  void enableOffHeapTier(long maximumBytes, OffHeapCodec<V> codec) {
+    this.offHeap = new OffHeapStore<>(maximumBytes, codec, stats);
+  }
+
+  /**
+   * Get the value mapped to the key, if it is present and not expired.
+   *
+   * @param key  the key
+   * @return Optional containing the value if it was found
+   */
+  public Optional<V> get(K key) {
+    final Optional<V> value = getQuietly(key);
+    if (value.isPresent()) {
+      stats.recordHit();
+    } else {
+      stats.recordMiss();
+    }
+
+    return value;
+  }
+
+  /**
+   * Get the value mapped to the key without recording a hit or a miss.
+   *
+   * @param key  the key
+   * @return Optional containing the value if it was found
+   */
+  public Optional<V> getQuietly(K key) {
+    return find(key)
+      .filter(lookup -> !lookup.stale())
+      .map(CacheLookup::value);
+  }
+
+  /**
+   * Get the value mapped to the key, if it is present and either not
+   * expired or within the stale grace period.
+   *
+   * @param key  the key
+   * @return Optional containing the value and whether it is stale, if it
+   *         was found
+   */
+  public Optional<CacheLookup<V>> lookup(K key) {
+    final Optional<CacheLookup<V>> lookup = find(key);
+    if (lookup.isPresent()) {
+      stats.recordHit();
+    } else {
+      stats.recordMiss();
+    }
+
+    return lookup;
+  }
+
+  private Optional<CacheLookup<V>> find(K key) {
+    return segmentFor(key).find(key);
+  }
+
+  /**
+   * Get the value mapped to the key, or load and put it if it is absent or
+   * expired. Concurrent calls for the same key load the value only once, the
+   * other callers wait for it. If the load fails, every waiting caller gets
+   * the same exception and nothing is put.
+   *
+   * <p>Hits and misses are not recorded, the caller is expected to have
+   * looked up the key already.
+   *
+   * @param key  the key
+   * @param loader  loads the value, must not return {@code null}
+   * @return the present or loaded value
+   */
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+    final Optional<V> present = getQuietly(key);
+    if (present.isPresent()) {
+      return present.get();
+    }
+
+    final CompletableFuture<V> future = new CompletableFuture<>();
+    final CompletableFuture<V> ongoing = loading.putIfAbsent(key, future);
+    if (ongoing != null) {
+      return await(ongoing);
+    }
+
+    try {
+      // a previous load may have completed after the first check
+      final Optional<V> loaded = getQuietly(key);
+      if (loaded.isPresent()) {
+        future.complete(loaded.get());
+        return loaded.get();
+      }
+
+      final V value = Objects.requireNonNull(
+        loader.apply(key),
+        "Expected loaded value not to be null"
+      );
+
+      put(key, value);
+      future.complete(value);
+      return value;
+
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(key, future);
+    }
+  }
+
+  private V await(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      } else if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * Map the key to the value. Evicts the least recently used entry if the
+   * cache is full.
+   *
+   * @param key  the key
+   * @param value  the value
+   */
+  public void put(K key, V value) {
+    put(key, value, timeToLiveNanos);
+  }
+
+  /**
+   * Map the key to the value with a time to live differing from the default
+   * one. Evicts the least recently used entry if the cache is full.
+   *
+   * @param key  the key
+   * @param value  the value
+   * @param timeToLive  how long the entry is returned, must be positive
+   */
+  public void put(K key, V value, Duration timeToLive) {
+    if (timeToLive.isNegative() || timeToLive.isZero()) {
+      throw new IllegalArgumentException(
+        "Expected time to live '" + timeToLive + "' to be positive"
+      );
+    }
+
+    put(key, value, timeToLive.toNanos());
+  }
+
+  private void put(K key, V value, long timeToLiveNanos) {
+    final Entry<V> entry = new Entry<>(
+      value,
+      ticker.getAsLong() + timeToLiveNanos,
+      weigher.applyAsLong(value)
+    );
+
+    segmentFor(key).put(key, entry);
+  }
+
+  /**
+   * Remove the mapping of the key, if any.
+   *
+   * @param key  the key
+   */
+  public void invalidate(K key) {
+    segmentFor(key).invalidate(key);
+  }
+
+  /**
+   * Remove the mappings of every key matching the predicate.
+   *
+   * @param predicate  selects the keys to remove
+   */
+  public void invalidateIf(Predicate<? super K> predicate) {
+    // every segment is locked, so that no matching entry is moved between
+    // the tiers while they are invalidated
+    lockAll();
+    try {
+      for (Segment segment : segments) {
+        segment.invalidateIf(predicate);
+      }
+
+      final OffHeapStore<K, V> offHeap = this.offHeap;
+      if (offHeap != null) {
+        offHeap.removeIf(predicate);
+      }
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Remove all mappings.
+   */
+  public void clear() {
+    lockAll();
+    try {
+      for (Segment segment : segments) {
+        segment.clear();
+      }
+
+      final OffHeapStore<K, V> offHeap = this.offHeap;
+      if (offHeap != null) {
+        offHeap.clear();
+      }
+    } finally {
+      unlockAll();
+    }
+  }
+
+  // always in the same order, so that two threads can not deadlock
+  private void lockAll() {
+    for (Segment segment : segments) {
+      segment.lock.lock();
+    }
+  }
+
+  private void unlockAll() {
+    for (int i = segments.size() - 1; i >= 0; i--) {
+      segments.get(i).lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of entries, including expired entries not yet removed
+   * and entries in the off-heap tier.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+
+    final OffHeapStore<K, V> offHeap = this.offHeap;
+    return offHeap == null ? size : size + offHeap.size();
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public CacheStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Get the off-heap memory used by the values in the off-heap tier.
+   *
+   * @return the number of bytes, zero if there is no off-heap tier
+   */
+  public long getOffHeapBytes() {
+    final OffHeapStore<K, V> offHeap = this.offHeap;
+    return offHeap == null ? 0 : offHeap.getUsedBytes();
+  }
+
+  /**
+   * Get the estimated heap memory used by the values, as given by the weigher.
+   *
+   * @return the estimated number of bytes
+   */
+  public long getEstimatedBytes() {
+    long estimatedBytes = 0;
+    for (Segment segment : segments) {
+      estimatedBytes += segment.getEstimatedBytes();
+    }
+
+    return estimatedBytes;
+  }
+
+  private Segment segmentFor(K key) {
+    final int hash = key.hashCode();
+    return segments.get((hash ^ (hash >>> 16)) & (segments.size() - 1));
+  }
+
+  private final class Segment {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // access ordered, so the eldest entry is the least recently used one
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private long estimatedBytes = 0;
+
+    // the entry evicted by the last put, to be moved off-heap
+    private Map.Entry<K, Entry<V>> evicted;
+
+    private Segment(int maximumSize) {
+      this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+          if (size() > maximumSize) {
+            estimatedBytes -= eldest.getValue().weight;
+            if (offHeap == null) {
+              stats.recordEviction();
+            } else {
+              evicted = Map.entry(eldest.getKey(), eldest.getValue());
+            }
+
+            return true;
+          }
+
+          return false;
+        }
+      };
+    }
+
+    private Optional<CacheLookup<V>> find(K key) {
+      lock.lock();
+      try {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+          return takeOffHeap(key);
+        }
+
+        final long now = ticker.getAsLong();
+        if (!entry.isExpired(now, 0)) {
+          return Optional.of(new CacheLookup<>(entry.value, false));
+        }
+
+        if (!entry.isExpired(now, staleGraceNanos)) {
+          return Optional.of(new CacheLookup<>(entry.value, true));
+        }
+
+        entries.remove(key);
+        estimatedBytes -= entry.weight;
+        stats.recordEviction();
+        return Optional.empty();
+
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // move the entry back to the heap, the lock is held
+    private Optional<CacheLookup<V>> takeOffHeap(K key) {
+      final OffHeapStore<K, V> offHeap = ExpiringLruCache.this.offHeap;
+      if (offHeap == null) {
+        return Optional.empty();
+      }
+
+      return offHeap.take(key).flatMap(stored -> {
+        final Entry<V> entry = new Entry<>(
+          stored.value(),
+          stored.expiresAt(),
+          weigher.applyAsLong(stored.value())
+        );
+
+        final long now = ticker.getAsLong();
+        if (entry.isExpired(now, staleGraceNanos)) {
+          stats.recordEviction();
+          return Optional.empty();
+        }
+
+        putLocked(key, entry);
+        return Optional.of(new CacheLookup<>(entry.value, entry.isExpired(now, 0)));
+      });
+    }
+
+    private void put(K key, Entry<V> entry) {
+      lock.lock();
+      try {
+        final OffHeapStore<K, V> offHeap = ExpiringLruCache.this.offHeap;
+        if (offHeap != null) {
+          offHeap.invalidate(key);
+        }
+
+        putLocked(key, entry);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // the evicted entry is moved off-heap before the lock is released, the
+    // evicted key belongs to this segment as well
+    private void putLocked(K key, Entry<V> entry) {
+      final Entry<V> previous = entries.put(key, entry);
+      estimatedBytes += entry.weight - (previous == null ? 0 : previous.weight);
+
+      final Map.Entry<K, Entry<V>> evicted = this.evicted;
+      if (evicted == null) {
+        return;
+      }
+
+      this.evicted = null;
+      final Entry<V> evictedEntry = evicted.getValue();
+      if (evictedEntry.isExpired(ticker.getAsLong(), staleGraceNanos)) {
+        stats.recordEviction();
+      } else {
+        offHeap.put(evicted.getKey(), evictedEntry.value, evictedEntry.expiresAt);
+      }
+    }
+
+    private void invalidate(K key) {
+      lock.lock();
+      try {
+        final Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+          estimatedBytes -= previous.weight;
+        }
+
+        final OffHeapStore<K, V> offHeap = ExpiringLruCache.this.offHeap;
+        if (offHeap != null) {
+          offHeap.invalidate(key);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void invalidateIf(Predicate<? super K> predicate) {
+      lock.lock();
+      try {
+        entries.entrySet().removeIf(e -> {
+          if (predicate.test(e.getKey())) {
+            estimatedBytes -= e.getValue().weight;
+            return true;
+          }
+
+          return false;
+        });
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void clear() {
+      lock.lock();
+      try {
+        entries.clear();
+        estimatedBytes = 0;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private int size() {
+      lock.lock();
+      try {
+        return entries.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private long getEstimatedBytes() {
+      lock.lock();
+      try {
+        return estimatedBytes;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private static class Entry<V> {
+
+    private final V value;
+
+    private final long expiresAt;
+
+    private final long weight;
+
+    private Entry(V value, long expiresAt, long weight) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.weight = weight;
+    }
+
+    // overflow safe comparison of two nano times
+    private boolean isExpired(long now, long graceNanos) {
+      return now - expiresAt - graceNanos >= 0;
+    }
+  }
+}
@@ -0,0 +1,358 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * On disk store for metallum images. Images never change for a given artist
+ * or release title id, so they are stored by their upstream file name, for
+ * example {@code "2426_logo.jpg"} or {@code "6516.jpg"}.
+ *
+ * <p>The total size of the stored images is kept within the configured
+ * budget by deleting the least recently used images. Files found in the
+ * directory on startup are ordered by their modification time. Images that
+ * are served should be {@linkplain #open(String) opened} rather than read
+ * from their file later, as the file may be evicted meanwhile. An opened
+ * image is pinned by a hard link, which does not count towards the budget
+ * and is deleted once the image is closed, or on the next startup.
+ */
+@Slf4j
+@Service
+public class ImageDiskCache implements MonitoredCache {
+
+  private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_.-]*");
+
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+  private static final String PINNED_FILE_PREFIX = "pinned-";
+
+  private final Path directory;
+
+  private final long maximumBytes;
+
+  // access ordered, so the first entry is the least recently used one
+  private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long totalBytes = 0;
+
+  private final CacheStats stats = new CacheStats();
+
+  public ImageDiskCache(
+    @Value("${metallum.cache.images.directory:${java.io.tmpdir}/fsapi-images}") String directory,
+    @Value("${metallum.cache.images.maximum-size:512MB}") DataSize maximumSize
+  ) throws IOException {
+    this.directory = Path.of(directory).toAbsolutePath().normalize();
+    this.maximumBytes = maximumSize.toBytes();
+
+    Files.createDirectories(this.directory);
+    loadIndex();
+  }
+
+  /**
+   * Get the file of a stored image.
+   *
+   * @param key  the image file name
+   * @return Optional containing the image file, if the image is stored
+   */
+  public synchronized Optional<Path> get(String key) {
+    final Long size = sizes.get(key);
+    if (size == null) {
+      stats.recordMiss();
+      return Optional.empty();
+    }
+
+    final Path file = resolve(key);
+    if (!Files.exists(file)) {
+      // removed from outside
+      sizes.remove(key);
+      totalBytes -= size;
+      stats.recordMiss();
+      return Optional.empty();
+    }
+
+    stats.recordHit();
+    return Optional.of(file);
+  }
+
+  /**
+   * Open a stored image for reading. The image file is pinned by a hard link
+   * while no image can be evicted, so that the image can still be read
+   * after a later eviction deletes its file. The image has to be closed
+   * once read, to delete the pinned file.
+   *
+   * @param key  the image file name
+   * @return Optional containing the opened image, if the image is stored
+   * @throws UncheckedIOException if the image can not be pinned
+   */
+  public synchronized Optional<StoredImage> open(String key) {
+    final Long size = sizes.get(key);
+    if (size == null) {
+      stats.recordMiss();
+      return Optional.empty();
+    }
+
+    final Path pinned = directory.resolve(
+      PINNED_FILE_PREFIX + UUID.randomUUID() + TEMPORARY_FILE_SUFFIX
+    );
+
+    try {
+      pin(resolve(key), pinned);
+    } catch (NoSuchFileException e) {
+      // removed from outside
+      sizes.remove(key);
+      totalBytes -= size;
+      stats.recordMiss();
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open image '" + key + "'", e);
+    }
+
+    stats.recordHit();
+    return Optional.of(new StoredImage(key, pinned));
+  }
+
+  /**
+   * Store an image, replacing any previous image with the same key. Evicts
+   * least recently used images if the size budget is exceeded.
+   *
+   * @param key  the image file name
+   * @param image  the image content
+   * @return the image file
+   * @throws UncheckedIOException if the image can not be written
+   */
+  public Path put(String key, byte[] image) {
+    // readers never see a partially written file
+    try {
+      final Path temporary = createTemporaryFile();
+      Files.write(temporary, image);
+      return store(key, temporary);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not store image '" + key + "'", e);
+    }
+  }
+
+  /**
+   * Store an image as it is received, without holding more than a few
+   * buffers of it in memory. Replaces any previous image with the same key
+   * and evicts least recently used images if the size budget is exceeded.
+   * The buffers are released once written.
+   *
+   * @param key  the image file name
+   * @param image  the image content
+   * @return Mono emitting the image file, or an {@link UncheckedIOException}
+   *         if the image can not be written
+   */
+  public Mono<Path> put(String key, Flux<DataBuffer> image) {
+    return Mono.usingWhen(
+      Mono.fromCallable(this::createTemporaryFile),
+      temporary -> DataBufferUtils.write(image, temporary, StandardOpenOption.WRITE)
+        .then(Mono.fromCallable(() -> store(key, temporary))),
+      temporary -> Mono.fromRunnable(() -> deleteTemporaryFile(temporary))
+    ).onErrorMap(
+      IOException.class,
+      e -> new UncheckedIOException("Could not store image '" + key + "'", e)
+    );
+  }
+
+  /**
+   * Delete a stored image, if any.
+   *
+   * @param key  the image file name
+   */
+  public synchronized void clear(String key) {
+    final Long size = sizes.remove(key);
+    if (size != null) {
+      delete(key);
+      totalBytes -= size;
+    }
+  }
+
+  /**
+   * Delete every stored image.
+   */
+  @Override
+  public synchronized void clear() {
+    for (String key : sizes.keySet()) {
+      delete(key);
+    }
+
+    sizes.clear();
+    totalBytes = 0;
+  }
+
+  @Override
+  public String getName() {
+    return "images";
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return stats;
+  }
+
+  @Override
+  public synchronized long size() {
+    return sizes.size();
+  }
+
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    return getTotalBytes();
+  }
+
+  private Path createTemporaryFile() throws IOException {
+    return Files.createTempFile(directory, "download-", TEMPORARY_FILE_SUFFIX);
+  }
+
+  /**
+   * Move a completely written temporary file into place and index it.
+   *
+   * @param key  the image file name
+   * @param temporary  the temporary file containing the image
+   * @return the image file
+   * @throws IOException if the file can not be moved
+   */
+  private Path store(String key, Path temporary) throws IOException {
+    final Path file = resolve(key);
+    final long size = Files.size(temporary);
+    Files.move(
+      temporary, file,
+      StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+    );
+
+    synchronized (this) {
+      final Long previous = sizes.put(key, size);
+      totalBytes += size - (previous == null ? 0 : previous);
+      evict(key);
+    }
+
+    return file;
+  }
+
+  private void deleteTemporaryFile(Path temporary) {
+    // already moved into place unless the write failed
+    try {
+      Files.deleteIfExists(temporary);
+    } catch (IOException e) {
+      log.warn("Could not delete temporary file '" + temporary + "'", e);
+    }
+  }
+
+  private void pin(Path file, Path pinned) throws IOException {
+    try {
+      Files.createLink(pinned, file);
+    } catch (UnsupportedOperationException e) {
+      // the file system has no hard links
+      Files.copy(file, pinned);
+    }
+  }
+
+  private void evict(String retainedKey) {
+    final Iterator<Map.Entry<String, Long>> itr = sizes.entrySet().iterator();
+    while (totalBytes > maximumBytes && itr.hasNext()) {
+      final Map.Entry<String, Long> eldest = itr.next();
+      if (eldest.getKey().equals(retainedKey)) {
+        continue;
+      }
+
+      delete(eldest.getKey());
+      totalBytes -= eldest.getValue();
+      stats.recordEviction();
+      itr.remove();
+    }
+  }
+
+  private void delete(String key) {
+    try {
+      Files.deleteIfExists(resolve(key));
+    } catch (IOException e) {
+      log.warn("Could not delete image '" + key + "'", e);
+    }
+  }
+
+  private Path resolve(String key) {
+    if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+      throw new IllegalArgumentException(
+        "Expected image key '" + key + "' to be a plain file name"
+      );
+    }
+
+    return directory.resolve(key);
+  }
+
+  private synchronized void loadIndex() throws IOException {
+    final List<Path> files;
+    try (Stream<Path> stream = Files.list(directory)) {
+      files = stream
+        .filter(Files::isRegularFile)
+        .collect(Collectors.toList());
+    }
+
+    files.stream()
+      .filter(file -> file.getFileName().toString().endsWith(TEMPORARY_FILE_SUFFIX))
+      .forEach(file -> delete(file.getFileName().toString()));
+
+    files.stream()
+      .filter(file -> !file.getFileName().toString().endsWith(TEMPORARY_FILE_SUFFIX))
+      .filter(file -> KEY_PATTERN.matcher(file.getFileName().toString()).matches())
+      .map(this::readAttributes)
+      .filter(Optional::isPresent)
+      .map(Optional::get)
+      .sorted(Comparator.comparing(entry -> entry.attributes().lastModifiedTime()))
+      .forEach(entry -> {
+        sizes.put(entry.key(), entry.attributes().size());
+        totalBytes += entry.attributes().size();
+      });
+
+    evict(null);
+
+    log.info(
+      "Found " + sizes.size() + " stored images (" + totalBytes
+      + " bytes) in '" + directory + "'"
+    );
+  }
+
+  private Optional<StoredFile> readAttributes(Path file) {
+    try {
+      return Optional.of(new StoredFile(
+        file.getFileName().toString(),
+        Files.readAttributes(file, BasicFileAttributes.class)
+      ));
+    } catch (IOException e) {
+      log.warn("Could not read image file '" + file + "'", e);
+      return Optional.empty();
+    }
+  }
+
+  private record StoredFile(String key, BasicFileAttributes attributes) {}
+}
@@ -0,0 +1,102 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.fs.fsapi.metallum.parser.LyricsResult;
+
+/**
+ * Bounded cache for song lyrics by song id. Lyrics are held compressed, see
+ * {@link CompressedLyrics}, and decompressed for each hit. Expired entries
+ * are kept for a stale grace period to be served while they are refreshed.
+ * Optionally lyrics evicted for lack of space are kept off-heap.
+ */
+@Service
+public class LyricsCache implements MonitoredCache {
+
+  private final ExpiringLruCache<String, CompressedLyrics> cache;
+
+  public LyricsCache(
+    @Value("${metallum.cache.lyrics.maximum-size:10000}") int maximumSize,
+    @Value("${metallum.cache.lyrics.time-to-live:1d}") Duration timeToLive,
+    @Value("${metallum.cache.lyrics.stale-grace-period:7d}") Duration staleGracePeriod,
+    @Value("${metallum.cache.lyrics.off-heap-size:0B}") DataSize offHeapSize
+  ) {
+    this.cache = new ExpiringLruCache<>(
+      maximumSize,
+      timeToLive,
+      staleGracePeriod,
+      lyrics -> SizeEstimates.OBJECT + lyrics.getDataLength()
+    );
+
+    if (offHeapSize.toBytes() > 0) {
+      cache.enableOffHeapTier(offHeapSize.toBytes(), CompressedLyrics.CODEC);
+    }
+  }
+
+  public void put(String songId, LyricsResult lyrics) {
+    cache.put(songId, CompressedLyrics.compress(lyrics));
+  }
+
+  public Optional<LyricsResult> get(String songId) {
+    return cache.get(songId).map(CompressedLyrics::decompress);
+  }
+
+  /**
+   * Get the lyrics, also when they are stale.
+   *
+   * @param songId  the song id
+   * @return Optional containing the lyrics and whether they are stale
+   */
+  public Optional<CacheLookup<LyricsResult>> lookup(String songId) {
+    return cache.lookup(songId).map(lookup -> lookup.map(CompressedLyrics::decompress));
+  }
+
+  /**
+   * Get the lyrics without affecting the statistics.
+   *
+   * @param songId  the song id
+   * @return Optional containing the lyrics, if cached
+   */
+  public Optional<LyricsResult> inspect(String songId) {
+    return cache.getQuietly(songId).map(CompressedLyrics::decompress);
+  }
+
+  public void clear(String songId) {
+    cache.invalidate(songId);
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+
+  @Override
+  public String getName() {
+    return MetallumCacheType.LYRICS.getId();
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return cache.getStats();
+  }
+
+  @Override
+  public long size() {
+    return cache.size();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    return cache.getEstimatedBytes();
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+    return cache.getOffHeapBytes();
+  }
+}
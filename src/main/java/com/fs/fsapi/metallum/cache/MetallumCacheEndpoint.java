@@ -0,0 +1,156 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.fs.fsapi.exceptions.CustomParameterConstraintException;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint for inspecting and invalidating the metallum caches.
+ *
+ * <ul>
+ *  <li>{@code caches} lists the statistics of every cache
+ *  <li>{@code inspect} inspects one entry of a cache by {@code key}, search
+ *      entries are selected with {@code artist} and {@code title}
+ *  <li>{@code invalidate} clears a cache, or invalidates one entry with the
+ *      same parameters as inspecting. Search entries of one artist are
+ *      invalidated with {@code artist} only.
+ * </ul>
+ *
+ * <p>The endpoint is exposed only over JMX, as invalidating is not secured.
+ * Exposed over HTTP, by adding {@code metallumcache} to
+ * {@code management.endpoints.web.exposure.include}, it is served at
+ * {@code /actuator/metallumcache/{cache}}, and should be put behind
+ * authentication or on a separate {@code management.server.port}.
+ */
+@Component
+@Endpoint(id = "metallumcache")
+@RequiredArgsConstructor
+public class MetallumCacheEndpoint {
+
+  private final ArtistTitleSearchCache searchCache;
+
+  private final TitlePageCache titlePageCache;
+
+  private final LyricsCache lyricsCache;
+
+  private final ImageDiskCache imageCache;
+
+  private final List<MonitoredCache> caches;
+
+  @ReadOperation
+  public Map<String, CacheDescription> caches() {
+    final Map<String, CacheDescription> descriptions = new LinkedHashMap<>();
+    for (MonitoredCache cache : caches) {
+      descriptions.put(cache.getName(), describe(cache));
+    }
+
+    return descriptions;
+  }
+
+  @ReadOperation
+  public Map<String, Object> inspect(
+    @Selector String cache,
+    @Nullable String key,
+    @Nullable String artist,
+    @Nullable String title
+  ) {
+    final Optional<?> value;
+    if (cache.equals(searchCache.getName())) {
+      value = searchCache.inspect(required("artist", artist), required("title", title));
+    } else if (cache.equals(titlePageCache.getName())) {
+      value = titlePageCache.inspect(required("key", key));
+    } else if (cache.equals(lyricsCache.getName())) {
+      value = lyricsCache.inspect(required("key", key));
+    } else {
+      return Map.of("cache", describe(find(cache)));
+    }
+
+    final Map<String, Object> result = new LinkedHashMap<>();
+    result.put("cache", describe(find(cache)));
+    result.put("present", value.isPresent());
+    value.ifPresent(v -> result.put("value", v));
+
+    return result;
+  }
+
+  @DeleteOperation
+  public void invalidate(
+    @Selector String cache,
+    @Nullable String key,
+    @Nullable String artist,
+    @Nullable String title
+  ) {
+    if (key == null && artist == null && title == null) {
+      find(cache).clear();
+      return;
+    }
+
+    if (cache.equals(searchCache.getName())) {
+      if (title == null) {
+        searchCache.invalidateAll(required("artist", artist));
+      } else {
+        searchCache.invalidate(required("artist", artist), title);
+      }
+    } else if (cache.equals(titlePageCache.getName())) {
+      titlePageCache.clear(required("key", key));
+    } else if (cache.equals(lyricsCache.getName())) {
+      lyricsCache.clear(required("key", key));
+    } else if (cache.equals(imageCache.getName())) {
+      imageCache.clear(required("key", key));
+    } else {
+      find(cache);
+    }
+  }
+
+  private MonitoredCache find(String name) {
+    return caches.stream()
+      .filter(cache -> cache.getName().equals(name))
+      .findFirst()
+      .orElseThrow(() -> new CustomParameterConstraintException(
+        "Unknown cache '" + name + "'"
+      ));
+  }
+
+  private String required(String parameter, String value) {
+    if (value == null) {
+      throw new CustomParameterConstraintException(
+        "Parameter '" + parameter + "' is required"
+      );
+    }
+
+    return value;
+  }
+
+  private CacheDescription describe(MonitoredCache cache) {
+    final CacheStats stats = cache.getStats();
+    return new CacheDescription(
+      cache.size(),
+      cache.getEstimatedBytes(),
+      cache.getOffHeapBytes(),
+      stats.getHitCount(),
+      stats.getMissCount(),
+      stats.getEvictionCount()
+    );
+  }
+
+  public record CacheDescription(
+    long size,
+    long estimatedBytes,
+    long offHeapBytes,
+    long hits,
+    long misses,
+    long evictions
+  ) {}
+}
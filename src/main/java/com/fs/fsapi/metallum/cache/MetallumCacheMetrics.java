@@ -0,0 +1,110 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Publishes the statistics of every {@link MonitoredCache} as Micrometer
+ * meters tagged by the cache name, and times the loads made on cache misses.
+ * The registry is bound by the actuator, before that the load times are not
+ * recorded.
+ */
+@Component
+public class MetallumCacheMetrics implements MeterBinder {
+
+  private static final String PREFIX = "metallum.cache";
+
+  private final List<MonitoredCache> caches;
+
+  private volatile MeterRegistry registry;
+
+  public MetallumCacheMetrics(List<MonitoredCache> caches) {
+    this.caches = caches;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (MonitoredCache cache : caches) {
+      final String name = cache.getName();
+
+      FunctionCounter.builder(PREFIX + ".gets", cache, c -> c.getStats().getHitCount())
+        .tag("cache", name)
+        .tag("result", "hit")
+        .description("The number of times a cache lookup found an entry")
+        .register(registry);
+
+      FunctionCounter.builder(PREFIX + ".gets", cache, c -> c.getStats().getMissCount())
+        .tag("cache", name)
+        .tag("result", "miss")
+        .description("The number of times a cache lookup did not find an entry")
+        .register(registry);
+
+      FunctionCounter.builder(PREFIX + ".evictions", cache, c -> c.getStats().getEvictionCount())
+        .tag("cache", name)
+        .description("The number of entries removed because of size or expiration")
+        .register(registry);
+
+      Gauge.builder(PREFIX + ".size", cache, MonitoredCache::size)
+        .tag("cache", name)
+        .description("The number of entries in the cache")
+        .register(registry);
+
+      Gauge.builder(PREFIX + ".estimated.bytes", cache, MonitoredCache::getEstimatedBytes)
+        .tag("cache", name)
+        .description("The estimated memory or disk space used by the entries")
+        .baseUnit("bytes")
+        .register(registry);
+
+      Gauge.builder(PREFIX + ".offheap.bytes", cache, MonitoredCache::getOffHeapBytes)
+        .tag("cache", name)
+        .description("The memory used by the entries kept outside of the heap")
+        .baseUnit("bytes")
+        .register(registry);
+    }
+
+    this.registry = registry;
+  }
+
+  /**
+   * Time a load made on a cache miss. The time is recorded when the load
+   * terminates, tagged by whether it succeeded.
+   *
+   * @param <T>  the value type
+   * @param cacheName  the name of the cache the value is loaded for
+   * @param load  the load
+   * @return the timed load
+   */
+  public <T> Mono<T> timeLoad(String cacheName, Mono<T> load) {
+    return Mono.defer(() -> {
+      final long start = System.nanoTime();
+
+      return load
+        .doOnSuccess(value -> recordLoad(cacheName, "success", System.nanoTime() - start))
+        .doOnError(e -> recordLoad(cacheName, "failure", System.nanoTime() - start));
+    });
+  }
+
+  private void recordLoad(String cacheName, String result, long nanos) {
+    final MeterRegistry registry = this.registry;
+    if (registry == null) {
+      return;
+    }
+
+    Timer.builder(PREFIX + ".load")
+      .tag("cache", cacheName)
+      .tag("result", result)
+      .description("The time taken to load a missing entry")
+      .publishPercentileHistogram()
+      .register(registry)
+      .record(nanos, TimeUnit.NANOSECONDS);
+  }
+}
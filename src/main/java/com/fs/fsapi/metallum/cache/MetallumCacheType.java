@@ -0,0 +1,38 @@
+package com.fs.fsapi.metallum.cache;
+
+/**
+ * Kinds of cached metallum lookups.
+ */
+public enum MetallumCacheType {
+
+  /**
+   * Search results by artist name and release title.
+   */
+  SEARCH("search"),
+
+  /**
+   * Ranked search candidate lists by artist name and release title.
+   */
+  CANDIDATES("candidates"),
+
+  /**
+   * Parsed release title pages, with the songs and release details, by
+   * release title id.
+   */
+  TITLE_PAGES("title-pages"),
+
+  /**
+   * Song lyrics by song id.
+   */
+  LYRICS("lyrics");
+
+  private final String id;
+
+  private MetallumCacheType(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+}
@@ -0,0 +1,45 @@
+package com.fs.fsapi.metallum.cache;
+
+/**
+ * Cache exposing its statistics, see {@link MetallumCacheMetrics}.
+ */
+public interface MonitoredCache {
+
+  /**
+   * Get the name of the cache, used as the {@code cache} tag of its meters.
+   *
+   * @return the cache name
+   */
+  public String getName();
+
+  public CacheStats getStats();
+
+  /**
+   * Get the number of entries.
+   *
+   * @return the number of entries
+   */
+  public long size();
+
+  /**
+   * Get an estimate of the memory, or disk space, used by the entries.
+   *
+   * @return the estimated number of bytes
+   */
+  public long getEstimatedBytes();
+
+  /**
+   * Get the memory used by entries kept outside of the Java heap.
+   *
+   * @return the number of bytes
+   */
+  public default long getOffHeapBytes() {
+    return 0;
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear();
+
+}
@@ -0,0 +1,28 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary form of the values held in an {@link OffHeapStore}.
+ *
+ * @param <V>  the value type
+ */
+interface OffHeapCodec<V> {
+
+  public void write(V value, DataOutput out) throws IOException;
+
+  public V read(DataInput in) throws IOException;
+
+  static void writeNullable(DataOutput out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  static String readNullable(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+}
@@ -0,0 +1,280 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded store keeping values serialized outside of the Java heap, so that
+ * holding them does not add to the garbage collector's work.
+ *
+ * <p>The memory is split into direct buffer pages of a fixed size, which are
+ * allocated as needed and used as a ring. Values are appended to the current
+ * page. Once every page is used, the oldest page is reused and the entries
+ * stored in it are dropped. Replaced or removed values leave unused bytes in
+ * their page until it is reused.
+ *
+ * <p>Reading a value copies it from the page and decodes it, the value is not
+ * kept on the heap.
+ *
+ * @param <K>  the key type
+ * @param <V>  the value type
+ */
+@Slf4j
+final class OffHeapStore<K, V> {
+
+  static final int PAGE_SIZE = 1 << 20;
+
+  private final int pageSize;
+
+  private final OffHeapCodec<V> codec;
+
+  private final CacheStats stats;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final ByteBuffer[] pages;
+
+  // the keys of the entries stored in each page
+  private final List<Set<K>> pageKeys;
+
+  private final Map<K, Location> index = new HashMap<>();
+
+  private int currentPage = 0;
+
+  private int position = 0;
+
+  private long usedBytes = 0;
+
+  /**
+   *
+   * @param maximumBytes  the maximum off-heap memory, at least one page
+   * @param codec  the binary form of the values
+   * @param stats  records the entries dropped for lack of space
+   */
+  OffHeapStore(long maximumBytes, OffHeapCodec<V> codec, CacheStats stats) {
+    this(maximumBytes, PAGE_SIZE, codec, stats);
+  }
+
+  OffHeapStore(long maximumBytes, int pageSize, OffHeapCodec<V> codec, CacheStats stats) {
+    if (maximumBytes < pageSize) {
+      throw new IllegalArgumentException(
+        "Expected maximum off-heap size '" + maximumBytes + "' to be at least " + pageSize
+      );
+    }
+
+    final int pageCount = (int) Math.min(Integer.MAX_VALUE, maximumBytes / pageSize);
+    this.pageSize = pageSize;
+    this.codec = codec;
+    this.stats = stats;
+    this.pages = new ByteBuffer[pageCount];
+    this.pageKeys = new ArrayList<>(pageCount);
+    for (int i = 0; i < pageCount; i++) {
+      pageKeys.add(new HashSet<>());
+    }
+  }
+
+  /**
+   * Store the value. Values that can not be encoded, or do not fit into a
+   * page, are dropped.
+   *
+   * @param key  the key
+   * @param value  the value
+   * @param expiresAt  the nano time the value expires at
+   */
+  void put(K key, V value, long expiresAt) {
+    final byte[] bytes;
+    try {
+      bytes = encode(value);
+    } catch (IOException e) {
+      log.debug("Could not store value off-heap: " + e.getMessage());
+      stats.recordEviction();
+      return;
+    }
+
+    if (bytes.length > pageSize) {
+      stats.recordEviction();
+      return;
+    }
+
+    lock.lock();
+    try {
+      remove(key);
+
+      if (position + bytes.length > pageSize) {
+        currentPage = (currentPage + 1) % pages.length;
+        position = 0;
+        dropPage(currentPage);
+      }
+
+      if (pages[currentPage] == null) {
+        pages[currentPage] = ByteBuffer.allocateDirect(pageSize);
+      }
+
+      pages[currentPage].put(position, bytes);
+      index.put(key, new Location(currentPage, position, bytes.length, expiresAt));
+      pageKeys.get(currentPage).add(key);
+      position += bytes.length;
+      usedBytes += bytes.length;
+
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Remove the value and return it.
+   *
+   * @param key  the key
+   * @return Optional containing the value and its expiry, if it was stored
+   */
+  Optional<Stored<V>> take(K key) {
+    final byte[] bytes;
+    final long expiresAt;
+
+    lock.lock();
+    try {
+      final Location location = remove(key);
+      if (location == null) {
+        return Optional.empty();
+      }
+
+      bytes = new byte[location.length];
+      pages[location.page].get(location.offset, bytes);
+      expiresAt = location.expiresAt;
+
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      return Optional.of(new Stored<>(decode(bytes), expiresAt));
+    } catch (IOException e) {
+      log.debug("Could not read value stored off-heap: " + e.getMessage());
+      stats.recordEviction();
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Remove the values of every key matching the predicate.
+   *
+   * @param predicate  selects the keys to remove
+   */
+  void removeIf(Predicate<? super K> predicate) {
+    lock.lock();
+    try {
+      for (K key : new ArrayList<>(index.keySet())) {
+        if (predicate.test(key)) {
+          remove(key);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void invalidate(K key) {
+    lock.lock();
+    try {
+      remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void clear() {
+    lock.lock();
+    try {
+      index.clear();
+      pageKeys.forEach(Set::clear);
+      usedBytes = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return index.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of bytes used by the stored values, not counting the
+   * unused bytes left by replaced values.
+   *
+   * @return the number of bytes
+   */
+  long getUsedBytes() {
+    lock.lock();
+    try {
+      return usedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Location remove(K key) {
+    final Location location = index.remove(key);
+    if (location != null) {
+      pageKeys.get(location.page).remove(key);
+      usedBytes -= location.length;
+    }
+
+    return location;
+  }
+
+  private void dropPage(int page) {
+    final Set<K> keys = pageKeys.get(page);
+    for (K key : keys) {
+      usedBytes -= index.remove(key).length;
+      stats.recordEviction();
+    }
+
+    keys.clear();
+  }
+
+  private byte[] encode(V value) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      codec.write(value, out);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  private V decode(byte[] bytes) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      return codec.read(in);
+    }
+  }
+
+  /**
+   * Value read from the store.
+   *
+   * @param <V>  the value type
+   * @param value  the value
+   * @param expiresAt  the nano time the value expires at
+   */
+  record Stored<V>(V value, long expiresAt) {}
+
+  private record Location(int page, int offset, int length, long expiresAt) {}
+}
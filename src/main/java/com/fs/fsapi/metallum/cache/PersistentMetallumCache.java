@@ -0,0 +1,166 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Second level cache for metallum lookups, stored as JSON in the application
+ * database. The cache survives restarts and is shared by every application
+ * instance using the same database.
+ *
+ * <p>The table is not managed by Hibernate, so it is not dropped when the
+ * entity tables are recreated. Database errors are logged and handled as
+ * cache misses.
+ *
+ * <p>When disabled, or when there is no datasource, every lookup misses and
+ * nothing is stored.
+ */
+@Slf4j
+@Service
+public class PersistentMetallumCache {
+
+  private static final String CREATE_TABLE = """
+    CREATE TABLE IF NOT EXISTS metallum_cache (
+      cache_type VARCHAR(16) NOT NULL,
+      cache_key VARCHAR(1024) NOT NULL,
+      payload TEXT NOT NULL,
+      expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+      PRIMARY KEY (cache_type, cache_key)
+    )""";
+
+  private static final String SELECT = """
+    SELECT payload FROM metallum_cache
+    WHERE cache_type = ? AND cache_key = ? AND expires_at > ?""";
+
+  private static final String UPSERT = """
+    INSERT INTO metallum_cache (cache_type, cache_key, payload, expires_at)
+    VALUES (?, ?, ?, ?)
+    ON CONFLICT (cache_type, cache_key)
+    DO UPDATE SET payload = EXCLUDED.payload, expires_at = EXCLUDED.expires_at""";
+
+  private static final String DELETE_EXPIRED = """
+    DELETE FROM metallum_cache WHERE expires_at <= ?""";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final ObjectMapper objectMapper;
+
+  private final Map<MetallumCacheType, Duration> timeToLives = new EnumMap<>(MetallumCacheType.class);
+
+  public PersistentMetallumCache(
+    ObjectProvider<JdbcTemplate> jdbcTemplate,
+    ObjectProvider<ObjectMapper> objectMapper,
+    @Value("${metallum.cache.persistent.enabled:false}") boolean enabled,
+    @Value("${metallum.cache.persistent.search-time-to-live:7d}") Duration searchTimeToLive,
+    @Value("${metallum.cache.persistent.title-pages-time-to-live:30d}") Duration titlePagesTimeToLive,
+    @Value("${metallum.cache.persistent.lyrics-time-to-live:30d}") Duration lyricsTimeToLive
+  ) {
+    this.jdbcTemplate = enabled ? jdbcTemplate.getIfAvailable() : null;
+    this.objectMapper = objectMapper.getIfAvailable(ObjectMapper::new);
+
+    timeToLives.put(MetallumCacheType.SEARCH, searchTimeToLive);
+    timeToLives.put(MetallumCacheType.TITLE_PAGES, titlePagesTimeToLive);
+    timeToLives.put(MetallumCacheType.LYRICS, lyricsTimeToLive);
+  }
+
+  @PostConstruct
+  public void createTable() {
+    if (!isEnabled()) {
+      return;
+    }
+
+    try {
+      jdbcTemplate.execute(CREATE_TABLE);
+
+      final int deleted = jdbcTemplate.update(DELETE_EXPIRED, now());
+      log.info("Removed " + deleted + " expired metallum cache entries");
+
+    } catch (DataAccessException e) {
+      log.warn("Could not prepare the metallum cache table", e);
+    }
+  }
+
+  public boolean isEnabled() {
+    return jdbcTemplate != null;
+  }
+
+  /**
+   * Get a value that has not expired.
+   *
+   * @param <T>  the value type
+   * @param type  the kind of the value
+   * @param key  the key of the value
+   * @param valueType  the value type, used for deserialization
+   * @return Optional containing the value if it was found
+   */
+  public <T> Optional<T> get(MetallumCacheType type, String key, TypeReference<T> valueType) {
+    if (!isEnabled()) {
+      return Optional.empty();
+    }
+
+    try {
+      final List<String> payloads = jdbcTemplate.queryForList(
+        SELECT, String.class, type.getId(), key, now()
+      );
+
+      if (payloads.isEmpty()) {
+        return Optional.empty();
+      }
+
+      return Optional.of(objectMapper.readValue(payloads.get(0), valueType));
+
+    } catch (DataAccessException | JsonProcessingException e) {
+      log.warn("Could not read metallum cache entry '" + key + "' of type '" + type.getId() + "'", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Store a value, replacing any previous value of the key. The value expires
+   * after the time to live configured for its type.
+   *
+   * @param type  the kind of the value
+   * @param key  the key of the value
+   * @param value  the value
+   */
+  public void put(MetallumCacheType type, String key, Object value) {
+    if (!isEnabled()) {
+      return;
+    }
+
+    try {
+      final Timestamp expiresAt = Timestamp.from(
+        Instant.now().plus(timeToLives.get(type))
+      );
+
+      jdbcTemplate.update(
+        UPSERT, type.getId(), key, objectMapper.writeValueAsString(value), expiresAt
+      );
+
+    } catch (DataAccessException | JsonProcessingException e) {
+      log.warn("Could not write metallum cache entry '" + key + "' of type '" + type.getId() + "'", e);
+    }
+  }
+
+  private Timestamp now() {
+    return Timestamp.from(Instant.now());
+  }
+}
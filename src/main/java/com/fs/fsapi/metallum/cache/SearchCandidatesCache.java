@@ -0,0 +1,106 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+
+/**
+ * Bounded cache for ranked search candidate lists by artist name and release
+ * title. The whole list of a search is a single entry, so that filtering it
+ * differently does not need another upstream request. Equivalent searches
+ * share the same entry, see {@link CanonicalSearchKeys}.
+ *
+ * <p>Searches without any candidates are cached with the time to live of
+ * searches without results in the {@link ArtistTitleSearchCache}.
+ */
+@Service
+public class SearchCandidatesCache implements MonitoredCache {
+
+  private final ExpiringLruCache<String, List<ArtistTitleSearchResult>> cache;
+
+  private final Duration notFoundTimeToLive;
+
+  private final CanonicalSearchKeys keys;
+
+  public SearchCandidatesCache(
+    CanonicalSearchKeys keys,
+    @Value("${metallum.cache.candidates.maximum-size:500}") int maximumSize,
+    @Value("${metallum.cache.candidates.time-to-live:6h}") Duration timeToLive,
+    @Value("${metallum.cache.search.not-found-time-to-live:10m}") Duration notFoundTimeToLive
+  ) {
+    this.notFoundTimeToLive = notFoundTimeToLive;
+    this.keys = keys;
+    this.cache = new ExpiringLruCache<>(
+      maximumSize,
+      timeToLive,
+      SearchCandidatesCache::estimateSize
+    );
+  }
+
+  public void put(String artist, String title, List<ArtistTitleSearchResult> candidates) {
+    if (candidates.isEmpty()) {
+      cache.put(keys.key(artist, title), List.of(), notFoundTimeToLive);
+      return;
+    }
+
+    cache.put(keys.key(artist, title), List.copyOf(candidates));
+  }
+
+  public Optional<List<ArtistTitleSearchResult>> get(String artist, String title) {
+    return cache.get(keys.key(artist, title));
+  }
+
+  public void clear(String artist, String title) {
+    cache.invalidate(keys.key(artist, title));
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+
+  @Override
+  public String getName() {
+    return MetallumCacheType.CANDIDATES.getId();
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return cache.getStats();
+  }
+
+  @Override
+  public long size() {
+    return cache.size();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    return cache.getEstimatedBytes();
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+    return cache.getOffHeapBytes();
+  }
+
+  private static long estimateSize(List<ArtistTitleSearchResult> candidates) {
+    long size = SizeEstimates.OBJECT;
+    for (ArtistTitleSearchResult candidate : candidates) {
+      size += 3 * SizeEstimates.OBJECT + SizeEstimates.of(
+        candidate.getArtist(),
+        candidate.getArtistHref(),
+        candidate.getTitle(),
+        candidate.getTitleHref(),
+        candidate.getReleaseType()
+      );
+    }
+
+    return size;
+  }
+}
@@ -0,0 +1,36 @@
+package com.fs.fsapi.metallum.cache;
+
+/**
+ * Rough estimates of the heap used by cached values, used for the cache
+ * statistics only.
+ */
+final class SizeEstimates {
+
+  /**
+   * Estimated size of an object header with a few fields.
+   */
+  static final long OBJECT = 32;
+
+  // String object with its backing array header
+  private static final long STRING = 40;
+
+  private SizeEstimates() {}
+
+  /**
+   * Estimate the size of strings. Assumes compact one byte per character
+   * strings, which is the common case for metallum data.
+   *
+   * @param values  the strings, may contain nulls
+   * @return the estimated number of bytes
+   */
+  static long of(String... values) {
+    long size = 0;
+    for (String value : values) {
+      if (value != null) {
+        size += STRING + value.length();
+      }
+    }
+
+    return size;
+  }
+}
@@ -0,0 +1,58 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.core.io.FileSystemResource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Image opened from the {@link ImageDiskCache}. The image is read from a
+ * hard link of its own, pinned when the image was opened, so it stays
+ * readable also if it is evicted or replaced meanwhile, and can be read
+ * more than once. The pinned file is deleted when the image is closed.
+ */
+@Slf4j
+public final class StoredImage extends FileSystemResource implements Closeable {
+
+  private final String filename;
+
+  private final Path pinned;
+
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  StoredImage(String filename, Path pinned) {
+    super(pinned);
+    this.filename = filename;
+    this.pinned = pinned;
+  }
+
+  /**
+   * Get the image file name, with the upstream extension.
+   */
+  @Override
+  public String getFilename() {
+    return filename;
+  }
+
+  /**
+   * Delete the pinned file. Streams opened before remain readable, closing
+   * more than once has no effect.
+   */
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      Files.deleteIfExists(pinned);
+    } catch (IOException e) {
+      log.warn("Could not delete pinned image '" + pinned + "'", e);
+    }
+  }
+}
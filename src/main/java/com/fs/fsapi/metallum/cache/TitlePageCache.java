@@ -0,0 +1,181 @@
+package com.fs.fsapi.metallum.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.fs.fsapi.metallum.parser.ReleaseDetailsResult;
+import com.fs.fsapi.metallum.parser.SongResult;
+import com.fs.fsapi.metallum.parser.TitlePageResult;
+
+/**
+ * Bounded cache for parsed release title pages by release title id. A
+ * single entry serves the songs, the release details and the cover image
+ * link of the release. Title pages practically never change, so entries can
+ * have a long time to live, and expired entries are kept for a stale grace
+ * period to be served while they are refreshed. Optionally title pages
+ * evicted for lack of space are kept off-heap.
+ */
+@Service
+public class TitlePageCache implements MonitoredCache {
+
+  private final ExpiringLruCache<String, TitlePageResult> cache;
+
+  public TitlePageCache(
+    @Value("${metallum.cache.title-pages.maximum-size:2000}") int maximumSize,
+    @Value("${metallum.cache.title-pages.time-to-live:1d}") Duration timeToLive,
+    @Value("${metallum.cache.title-pages.stale-grace-period:7d}") Duration staleGracePeriod,
+    @Value("${metallum.cache.title-pages.off-heap-size:0B}") DataSize offHeapSize
+  ) {
+    this.cache = new ExpiringLruCache<>(
+      maximumSize,
+      timeToLive,
+      staleGracePeriod,
+      TitlePageCache::estimateSize
+    );
+
+    if (offHeapSize.toBytes() > 0) {
+      cache.enableOffHeapTier(offHeapSize.toBytes(), new TitlePageCodec());
+    }
+  }
+
+  public void put(String titleId, TitlePageResult page) {
+    cache.put(titleId, new TitlePageResult(page.getDetails(), List.copyOf(page.getSongs())));
+  }
+
+  public Optional<TitlePageResult> get(String titleId) {
+    return cache.get(titleId);
+  }
+
+  /**
+   * Get the title page, also when it is stale.
+   *
+   * @param titleId  the release title id
+   * @return Optional containing the title page and whether it is stale
+   */
+  public Optional<CacheLookup<TitlePageResult>> lookup(String titleId) {
+    return cache.lookup(titleId);
+  }
+
+  /**
+   * Get the title page without affecting the statistics.
+   *
+   * @param titleId  the release title id
+   * @return Optional containing the title page, if cached
+   */
+  public Optional<TitlePageResult> inspect(String titleId) {
+    return cache.getQuietly(titleId);
+  }
+
+  public void clear(String titleId) {
+    cache.invalidate(titleId);
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+
+  @Override
+  public String getName() {
+    return MetallumCacheType.TITLE_PAGES.getId();
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return cache.getStats();
+  }
+
+  @Override
+  public long size() {
+    return cache.size();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    return cache.getEstimatedBytes();
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+    return cache.getOffHeapBytes();
+  }
+
+  private static long estimateSize(TitlePageResult page) {
+    final ReleaseDetailsResult details = page.getDetails();
+    long size = 2 * SizeEstimates.OBJECT + SizeEstimates.of(
+      details.getTitle(),
+      details.getArtist(),
+      details.getReleaseType(),
+      details.getReleaseDate(),
+      details.getCatalogId(),
+      details.getLabel(),
+      details.getFormat(),
+      details.getCoverUrl()
+    );
+
+    for (SongResult song : page.getSongs()) {
+      size += SizeEstimates.OBJECT
+        + SizeEstimates.of(song.getId(), song.getTitle(), song.getDuration());
+    }
+
+    return size;
+  }
+
+  private static class TitlePageCodec implements OffHeapCodec<TitlePageResult> {
+
+    @Override
+    public void write(TitlePageResult page, DataOutput out) throws IOException {
+      final ReleaseDetailsResult details = page.getDetails();
+      OffHeapCodec.writeNullable(out, details.getTitle());
+      OffHeapCodec.writeNullable(out, details.getArtist());
+      OffHeapCodec.writeNullable(out, details.getReleaseType());
+      OffHeapCodec.writeNullable(out, details.getReleaseDate());
+      OffHeapCodec.writeNullable(out, details.getCatalogId());
+      OffHeapCodec.writeNullable(out, details.getLabel());
+      OffHeapCodec.writeNullable(out, details.getFormat());
+      OffHeapCodec.writeNullable(out, details.getCoverUrl());
+
+      out.writeInt(page.getSongs().size());
+      for (SongResult song : page.getSongs()) {
+        OffHeapCodec.writeNullable(out, song.getId());
+        OffHeapCodec.writeNullable(out, song.getTitle());
+        OffHeapCodec.writeNullable(out, song.getDuration());
+      }
+    }
+
+    @Override
+    public TitlePageResult read(DataInput in) throws IOException {
+      final ReleaseDetailsResult details = new ReleaseDetailsResult(
+        OffHeapCodec.readNullable(in),
+        OffHeapCodec.readNullable(in),
+        OffHeapCodec.readNullable(in),
+        OffHeapCodec.readNullable(in),
+        OffHeapCodec.readNullable(in),
+        OffHeapCodec.readNullable(in),
+        OffHeapCodec.readNullable(in),
+        OffHeapCodec.readNullable(in)
+      );
+
+      final int count = in.readInt();
+      final List<SongResult> songs = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        songs.add(new SongResult(
+          OffHeapCodec.readNullable(in),
+          OffHeapCodec.readNullable(in),
+          OffHeapCodec.readNullable(in)
+        ));
+      }
+
+      return new TitlePageResult(details, List.copyOf(songs));
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package com.fs.fsapi.metallum.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import reactor.core.publisher.BaseSubscriber;
+
+/**
+ * Blocking input stream over a response body received as data buffers.
+ * Buffers are requested only as the stream is read, with a bounded number
+ * requested ahead, and each buffer is released once it has been read.
+ * Closing the stream cancels the rest of the body, also while another
+ * thread is waiting to read.
+ *
+ * <p>Reading blocks, so the stream must be read on a thread where blocking
+ * is allowed. The body is subscribed to when the stream is created.
+ */
+public final class DataBufferInputStream extends InputStream {
+
+  // marks the end of the body, or that the stream was closed
+  private static final Object END = new Object();
+
+  private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+  private final BodySubscriber subscriber;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private DataBuffer current;
+
+  private boolean ended = false;
+
+  private Throwable failure;
+
+  private volatile boolean closed = false;
+
+  /**
+   *
+   * @param body  the response body
+   * @param prefetch  the maximum number of buffers requested ahead of the
+   *                  reader, must be positive
+   */
+  public DataBufferInputStream(Publisher<DataBuffer> body, int prefetch) {
+    if (prefetch <= 0) {
+      throw new IllegalArgumentException(
+        "Expected prefetch '" + prefetch + "' to be positive"
+      );
+    }
+
+    this.subscriber = new BodySubscriber(prefetch);
+    body.subscribe(subscriber);
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] single = new byte[1];
+    final int count = read(single, 0, 1);
+    return count < 0 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    if (length == 0) {
+      return 0;
+    }
+
+    while (true) {
+      lock.lock();
+      try {
+        if (closed) {
+          throw new IOException("Stream closed");
+        }
+
+        if (current != null && current.readableByteCount() > 0) {
+          final int count = Math.min(length, current.readableByteCount());
+          current.read(bytes, offset, count);
+          return count;
+        }
+
+        releaseCurrent();
+        if (ended) {
+          return endOfBody();
+        }
+      } finally {
+        lock.unlock();
+      }
+
+      // wait for the next buffer without holding the lock, so that the
+      // stream can be closed meanwhile
+      receive();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+
+      closed = true;
+      releaseCurrent();
+    } finally {
+      lock.unlock();
+    }
+
+    subscriber.cancel();
+
+    Object item;
+    while ((item = received.poll()) != null) {
+      if (item instanceof DataBuffer buffer) {
+        DataBufferUtils.release(buffer);
+      }
+    }
+
+    // wakes up a reader waiting for the next buffer
+    received.add(END);
+  }
+
+  private void receive() throws IOException {
+    final Object item;
+    try {
+      item = received.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the response body");
+    }
+
+    lock.lock();
+    try {
+      if (item instanceof DataBuffer buffer) {
+        if (closed) {
+          DataBufferUtils.release(buffer);
+          return;
+        }
+
+        current = buffer;
+        subscriber.request(1);
+      } else {
+        ended = true;
+        if (item instanceof Throwable error) {
+          failure = error;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int endOfBody() throws IOException {
+    if (failure == null) {
+      return -1;
+    }
+
+    // the body error is thrown as is, so that it can be told apart from
+    // a failure to parse the body
+    if (failure instanceof RuntimeException e) {
+      throw e;
+    } else if (failure instanceof IOException e) {
+      throw e;
+    }
+
+    throw new IOException(failure);
+  }
+
+  private void releaseCurrent() {
+    if (current != null) {
+      DataBufferUtils.release(current);
+      current = null;
+    }
+  }
+
+  private class BodySubscriber extends BaseSubscriber<DataBuffer> {
+
+    private final int prefetch;
+
+    BodySubscriber(int prefetch) {
+      this.prefetch = prefetch;
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+      request(prefetch);
+    }
+
+    @Override
+    protected void hookOnNext(DataBuffer buffer) {
+      if (closed) {
+        DataBufferUtils.release(buffer);
+        return;
+      }
+
+      received.add(buffer);
+
+      // closed meanwhile, the buffer may have been missed by close
+      if (closed && received.remove(buffer)) {
+        DataBufferUtils.release(buffer);
+      }
+    }
+
+    @Override
+    protected void hookOnComplete() {
+      received.add(END);
+    }
+
+    @Override
+    protected void hookOnError(Throwable error) {
+      received.add(error);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.fs.fsapi.metallum.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Deduplicates identical upstream requests that are in flight at the same
+ * time. The first caller of a request starts it, and every caller joining
+ * before it terminates receives the same value or error. Once the request
+ * has terminated, the next caller starts a new one.
+ */
+@Component
+public class InFlightRequests {
+
+  private final ConcurrentMap<String, Mono<?>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Join the in flight request identified by the key, or start a new one.
+   * Nothing is started before the returned Mono is subscribed to.
+   *
+   * @param <T>  the response type
+   * @param key  identifies the upstream request, callers using the same
+   *             key must expect the same response type
+   * @param request  creates the request if none is in flight
+   * @return Mono emitting the shared response
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Mono<T> join(String key, Supplier<Mono<T>> request) {
+    return Mono.defer(() ->
+      (Mono<T>) inFlight.computeIfAbsent(key, k -> share(k, request.get()))
+    );
+  }
+
+  /**
+   * Get the number of requests currently in flight.
+   *
+   * @return the number of requests
+   */
+  public int size() {
+    return inFlight.size();
+  }
+
+  private <T> Mono<T> share(String key, Mono<T> request) {
+    final AtomicReference<Mono<T>> shared = new AtomicReference<>();
+
+    // the upstream is subscribed only once, remove the mapping as soon as
+    // it terminates so that later callers do not get a stale response
+    shared.set(request
+      .doFinally(signal -> inFlight.remove(key, shared.get()))
+      .cache()
+    );
+
+    return shared.get();
+  }
+}
@@ -0,0 +1,122 @@
+package com.fs.fsapi.metallum.client;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fs.fsapi.exceptions.CustomMetallumUnavailableException;
+
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+/**
+ * Applies the rate limit, timeout, retries and circuit breaker to the calls
+ * made to metallum. Calls are idempotent GET requests, so every attempt that
+ * times out, can not connect, or gets a server error or a throttling
+ * response is retried with an exponential, jittered backoff.
+ *
+ * <p>Each attempt acquires a token from the {@link MetallumRateLimiter}
+ * first, and its timeout starts only once it has the token. Waiting for a
+ * token, or being rejected by the rate limiter, is the application's own
+ * throttling and neither times out nor counts as metallum failing.
+ *
+ * <p>The attempts and the backoffs between them are bounded by an overall
+ * deadline, which is kept below the asynchronous request timeout, so that
+ * the client gets an unavailable response rather than a request timeout.
+ *
+ * <p>Once the retries are exhausted, the deadline has passed, or while the
+ * circuit breaker is open, the call fails with a
+ * {@link CustomMetallumUnavailableException}.
+ */
+@Component
+public class MetallumCallPolicy {
+
+  /**
+   * The kind of a call, each with its own timeout.
+   */
+  public enum Operation { SEARCH, SONGS, LYRICS, IMAGES }
+
+  private final MetallumCircuitBreaker circuitBreaker;
+
+  private final MetallumRateLimiter rateLimiter;
+
+  private final Map<Operation, Duration> timeouts = new EnumMap<>(Operation.class);
+
+  private final Duration deadline;
+
+  private final RetryBackoffSpec retry;
+
+  public MetallumCallPolicy(
+    MetallumCircuitBreaker circuitBreaker,
+    MetallumRateLimiter rateLimiter,
+    @Value("${metallum.client.timeout.search:10s}") Duration searchTimeout,
+    @Value("${metallum.client.timeout.songs:10s}") Duration songsTimeout,
+    @Value("${metallum.client.timeout.lyrics:10s}") Duration lyricsTimeout,
+    @Value("${metallum.client.timeout.images:30s}") Duration imagesTimeout,
+    @Value("${metallum.client.deadline:25s}") Duration deadline,
+    @Value("${metallum.client.retry.max-retries:2}") int maxRetries,
+    @Value("${metallum.client.retry.min-backoff:200ms}") Duration minBackoff,
+    @Value("${metallum.client.retry.jitter:0.5}") double jitter
+  ) {
+    this.circuitBreaker = circuitBreaker;
+    this.rateLimiter = rateLimiter;
+    this.timeouts.put(Operation.SEARCH, searchTimeout);
+    this.timeouts.put(Operation.SONGS, songsTimeout);
+    this.timeouts.put(Operation.LYRICS, lyricsTimeout);
+    this.timeouts.put(Operation.IMAGES, imagesTimeout);
+    this.deadline = deadline;
+    this.retry = Retry.backoff(maxRetries, minBackoff)
+      .jitter(jitter)
+      .filter(MetallumCallPolicy::isRetryable)
+      .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+  }
+
+  /**
+   * Apply the policy to a call.
+   *
+   * @param <T>  the value type
+   * @param operation  the kind of the call
+   * @param call  the call, subscribed again for each attempt
+   * @return Mono emitting the value of the call
+   */
+  public <T> Mono<T> apply(Operation operation, Mono<T> call) {
+    return circuitBreaker
+      .protect(
+        rateLimiter.acquire()
+          .then(call.timeout(timeouts.get(operation)))
+          .retryWhen(retry)
+          .timeout(deadline),
+        MetallumCallPolicy::isRetryable
+      )
+      .onErrorMap(
+        MetallumCallPolicy::isRetryable,
+        e -> new CustomMetallumUnavailableException(
+          "Metallum is not available, try again later"
+        )
+      );
+  }
+
+  /**
+   * Check whether an error is caused by metallum failing or throttling,
+   * rather than by the request itself.
+   *
+   * @param e  the error
+   * @return true if the error is transient
+   */
+  static boolean isRetryable(Throwable e) {
+    if (e instanceof WebClientResponseException response) {
+      return response.getStatusCode().is5xxServerError()
+        || response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    return e instanceof WebClientRequestException || e instanceof TimeoutException;
+  }
+}
@@ -0,0 +1,184 @@
+package com.fs.fsapi.metallum.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fs.fsapi.exceptions.CustomMetallumUnavailableException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stops calling metallum while it is failing, so that requests fail fast
+ * instead of waiting for timeouts.
+ *
+ * <p>The breaker opens after the configured number of consecutive failed
+ * calls, and rejects every call with a
+ * {@link CustomMetallumUnavailableException} while open. Once the open
+ * duration has passed a single probe call is let through, which closes the
+ * breaker if it succeeds and opens it again otherwise.
+ */
+@Slf4j
+@Component
+public class MetallumCircuitBreaker implements MeterBinder {
+
+  private static final String PREFIX = "metallum.client.circuit-breaker";
+
+  enum State { CLOSED, HALF_OPEN, OPEN }
+
+  private final int failureThreshold;
+
+  private final long openNanos;
+
+  private final LongSupplier ticker;
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  private State state = State.CLOSED;
+
+  private int failures = 0;
+
+  private long openedAt;
+
+  private boolean probing = false;
+
+  @Autowired
+  public MetallumCircuitBreaker(
+    @Value("${metallum.client.circuit-breaker.failure-threshold:5}") int failureThreshold,
+    @Value("${metallum.client.circuit-breaker.open-duration:30s}") Duration openDuration
+  ) {
+    this(failureThreshold, openDuration, System::nanoTime);
+  }
+
+  MetallumCircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier ticker) {
+    if (failureThreshold <= 0) {
+      throw new IllegalArgumentException(
+        "Expected failure threshold '" + failureThreshold + "' to be positive"
+      );
+    }
+
+    this.failureThreshold = failureThreshold;
+    this.openNanos = openDuration.toNanos();
+    this.ticker = ticker;
+  }
+
+  /**
+   * Make a call through the breaker.
+   *
+   * @param <T>  the value type
+   * @param call  the call to metallum
+   * @param isFailure  selects the errors caused by metallum failing, other
+   *                   errors, like a rejection by the rate limiter or a
+   *                   client error, leave the state as it is
+   * @return Mono emitting the value of the call, or a
+   *         {@link CustomMetallumUnavailableException} if the breaker is open
+   */
+  public <T> Mono<T> protect(Mono<T> call, Predicate<Throwable> isFailure) {
+    return Mono.defer(() -> {
+      if (!tryAcquire()) {
+        rejected.incrementAndGet();
+        return Mono.error(new CustomMetallumUnavailableException(
+          "Metallum is not available, try again later"
+        ));
+      }
+
+      return call
+        .doOnSuccess(value -> onSuccess())
+        .doOnError(e -> {
+          if (isFailure.test(e)) {
+            onFailure();
+          } else {
+            // metallum may not have been reached, so the call proves nothing
+            releaseProbe();
+          }
+        })
+        .doOnCancel(this::releaseProbe);
+    });
+  }
+
+  /**
+   * Check if calls are let through, as metallum has not been failing.
+   *
+   * @return true if the breaker is closed
+   */
+  public synchronized boolean isClosed() {
+    return state == State.CLOSED;
+  }
+
+  synchronized State getState() {
+    return state;
+  }
+
+  private synchronized boolean tryAcquire() {
+    switch (state) {
+      case CLOSED:
+        return true;
+
+      case OPEN:
+        if (ticker.getAsLong() - openedAt < openNanos) {
+          return false;
+        }
+
+        state = State.HALF_OPEN;
+        probing = true;
+        return true;
+
+      default:
+        if (probing) {
+          return false;
+        }
+
+        probing = true;
+        return true;
+    }
+  }
+
+  private synchronized void onSuccess() {
+    if (state != State.CLOSED) {
+      log.info("Metallum is available again, closing circuit breaker");
+    }
+
+    state = State.CLOSED;
+    failures = 0;
+    probing = false;
+  }
+
+  private synchronized void onFailure() {
+    failures++;
+    if (state == State.HALF_OPEN || failures >= failureThreshold) {
+      if (state == State.CLOSED) {
+        log.warn("Metallum failed " + failures + " times in a row, opening circuit breaker");
+      }
+
+      state = State.OPEN;
+      openedAt = ticker.getAsLong();
+      probing = false;
+    }
+  }
+
+  private synchronized void releaseProbe() {
+    // let the next call probe instead
+    probing = false;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder(PREFIX + ".state", this, breaker -> breaker.getState().ordinal())
+      .description("The circuit breaker state: 0 closed, 1 half open, 2 open")
+      .register(registry);
+
+    FunctionCounter.builder(PREFIX + ".rejected", rejected, AtomicLong::get)
+      .description("The number of calls rejected by the open circuit breaker")
+      .register(registry);
+  }
+}
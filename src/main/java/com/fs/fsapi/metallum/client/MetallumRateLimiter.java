@@ -0,0 +1,266 @@
+package com.fs.fsapi.metallum.client;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fs.fsapi.exceptions.CustomMetallumUnavailableException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Token bucket limiting the rate of the requests sent to metallum, which
+ * throttles aggressive clients. The bucket holds up to the burst size of
+ * tokens and is refilled at the configured rate, every request takes one.
+ *
+ * <p>A request finding the bucket empty reserves the next token and waits
+ * for it without blocking a thread. A request fails with a
+ * {@link CustomMetallumUnavailableException} instead, if the queue of waiting requests
+ * is full or the wait would exceed the queue timeout.
+ *
+ * <p>Tokens are acquired by {@link MetallumCallPolicy} before each attempt,
+ * so that the time spent waiting for a token does not count towards the
+ * attempt timeout.
+ *
+ * <p>Background requests, marked by the {@link #BACKGROUND} context key, never
+ * join the queue. They take a token only while no request is waiting, and
+ * check again at the refill rate otherwise, so that they do not delay
+ * interactive requests.
+ *
+ * <p>The queue depth and the wait times are published as metrics.
+ */
+@Component
+public class MetallumRateLimiter implements MeterBinder {
+
+  private static final String PREFIX = "metallum.client.rate-limiter";
+
+  /**
+   * Reactor context key marking background requests, such as the cache
+   * warm-up.
+   */
+  public static final String BACKGROUND = PREFIX + ".background";
+
+  private final double nanosPerPermit;
+
+  private final double burst;
+
+  private final int queueCapacity;
+
+  private final long queueTimeoutNanos;
+
+  private final LongSupplier ticker;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final AtomicInteger queueDepth = new AtomicInteger();
+
+  private double tokens;
+
+  private long refilledAt;
+
+  private volatile Timer waitTimer;
+
+  @Autowired
+  public MetallumRateLimiter(
+    @Value("${metallum.client.rate-limiter.requests-per-second:2}") double requestsPerSecond,
+    @Value("${metallum.client.rate-limiter.burst:5}") int burst,
+    @Value("${metallum.client.rate-limiter.queue-capacity:100}") int queueCapacity,
+    @Value("${metallum.client.rate-limiter.queue-timeout:5s}") Duration queueTimeout
+  ) {
+    this(requestsPerSecond, burst, queueCapacity, queueTimeout, System::nanoTime);
+  }
+
+  MetallumRateLimiter(
+    double requestsPerSecond,
+    int burst,
+    int queueCapacity,
+    Duration queueTimeout,
+    LongSupplier ticker
+  ) {
+    if (requestsPerSecond <= 0) {
+      throw new IllegalArgumentException(
+        "Expected requests per second '" + requestsPerSecond + "' to be positive"
+      );
+    } else if (burst <= 0) {
+      throw new IllegalArgumentException(
+        "Expected burst '" + burst + "' to be positive"
+      );
+    } else if (queueCapacity < 0) {
+      throw new IllegalArgumentException(
+        "Expected queue capacity '" + queueCapacity + "' not to be negative"
+      );
+    }
+
+    this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+    this.burst = burst;
+    this.queueCapacity = queueCapacity;
+    this.queueTimeoutNanos = queueTimeout.toNanos();
+    this.ticker = ticker;
+    this.tokens = burst;
+    this.refilledAt = ticker.getAsLong();
+  }
+
+  /**
+   * Acquire a token for a request, waiting in the queue if there is none.
+   * A background request waits outside of the queue until a token is left
+   * over by the other requests.
+   *
+   * @return Mono completing once the token is acquired, or emitting a
+   *         {@link CustomMetallumUnavailableException} if the queue is full,
+   *         or the wait would exceed the queue timeout
+   */
+  public Mono<Void> acquire() {
+    return Mono.deferContextual(context -> context.hasKey(BACKGROUND)
+      ? acquireIdle()
+      : acquireQueued()
+    );
+  }
+
+  private Mono<Void> acquireQueued() {
+    return Mono.defer(() -> {
+      final long wait = reserve();
+      if (wait == 0) {
+        recordWait(0);
+        return Mono.empty();
+      }
+
+      return Mono.delay(Duration.ofNanos(wait))
+        .doFinally(signal -> {
+          queueDepth.decrementAndGet();
+
+          // a request cancelled while waiting does not use its token
+          if (signal == SignalType.CANCEL) {
+            release();
+          }
+        })
+        .then(Mono.fromRunnable(() -> recordWait(wait)));
+    });
+  }
+
+  private Mono<Void> acquireIdle() {
+    return Mono.fromCallable(this::tryTakeIdle)
+      .filter(taken -> taken)
+      .repeatWhenEmpty(repeats -> repeats.delayElements(Duration.ofNanos((long) nanosPerPermit)))
+      .timeout(
+        Duration.ofNanos(queueTimeoutNanos),
+        Mono.error(() -> new CustomMetallumUnavailableException(
+          "Metallum is busy with other requests, try again later"
+        ))
+      )
+      .then();
+  }
+
+  /**
+   * Take a token for a background request, only if a token is available and
+   * no request is waiting for one.
+   *
+   * @return true if the token was taken
+   */
+  boolean tryTakeIdle() {
+    lock.lock();
+    try {
+      refill();
+      if (queueDepth.get() > 0 || tokens < 1) {
+        return false;
+      }
+
+      tokens -= 1;
+      return true;
+
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Take a token, or reserve the next one and join the queue.
+   *
+   * @return the nanos to wait for the token, zero if it was available
+   * @throws CustomMetallumUnavailableException if the queue is full, or the wait would
+   *         exceed the queue timeout
+   */
+  long reserve() {
+    lock.lock();
+    try {
+      refill();
+      if (tokens >= 1) {
+        tokens -= 1;
+        return 0;
+      }
+
+      if (queueDepth.get() >= queueCapacity) {
+        throw new CustomMetallumUnavailableException(
+          "Too many requests waiting for metallum, try again later"
+        );
+      }
+
+      final long wait = (long) Math.ceil((1 - tokens) * nanosPerPermit);
+      if (wait > queueTimeoutNanos) {
+        throw new CustomMetallumUnavailableException(
+          "Metallum request would wait too long, try again later"
+        );
+      }
+
+      // a negative balance holds the tokens reserved by the queue
+      tokens -= 1;
+      queueDepth.incrementAndGet();
+      return wait;
+
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Return a token reserved by a request that left the queue without using
+   * it, so that the requests queued after it do not wait for it.
+   */
+  void release() {
+    lock.lock();
+    try {
+      refill();
+      tokens = Math.min(burst, tokens + 1);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  private void refill() {
+    final long now = ticker.getAsLong();
+    tokens = Math.min(burst, tokens + (now - refilledAt) / nanosPerPermit);
+    refilledAt = now;
+  }
+
+  private void recordWait(long nanos) {
+    final Timer timer = waitTimer;
+    if (timer != null) {
+      timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder(PREFIX + ".queue", queueDepth, AtomicInteger::get)
+      .description("The number of metallum requests waiting for a token")
+      .register(registry);
+
+    waitTimer = Timer.builder(PREFIX + ".wait")
+      .description("The time metallum requests wait for a token")
+      .register(registry);
+  }
+}
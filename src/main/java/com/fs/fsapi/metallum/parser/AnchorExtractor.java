@@ -0,0 +1,227 @@
+package com.fs.fsapi.metallum.parser;
+
+import java.util.Optional;
+
+import org.jsoup.parser.Parser;
+
+import com.fs.fsapi.bookmark.parser.LinkElement;
+
+/**
+ * Extracts the {@code href} attribute and the text of a single {@code a}
+ * element fragment, like the links of the search results, without building
+ * a document around it.
+ *
+ * <p>The fragment must start with the {@code a} element, and content after
+ * its end tag, like a comment, is ignored. The text of nested elements and
+ * comments are handled, and entities are decoded. Anything the extractor
+ * does not handle the same way as jsoup, for example a {@code br} element,
+ * raw text elements or a missing end tag, is left to jsoup by returning an
+ * empty result.
+ */
+final class AnchorExtractor {
+
+  private static final String[] UNSUPPORTED_NESTED_TAGS = {
+    "a", "br", "script", "style", "textarea", "title", "xmp", "iframe",
+    "noembed", "noframes", "noscript", "plaintext", "template", "svg", "math"
+  };
+
+  private AnchorExtractor() {}
+
+  /**
+   * Extract the link of an {@code a} element fragment.
+   *
+   * @param html  the fragment
+   * @return Optional containing the link, or empty if the fragment must be
+   *         parsed by jsoup instead
+   */
+  static Optional<LinkElement> extract(String html) {
+    final int length = html.length();
+    int i = skipWhitespace(html, 0);
+    if (!isStartTag(html, i, "a")) {
+      return Optional.empty();
+    }
+
+    // attributes
+    String href = null;
+    i += 2;
+    while (true) {
+      i = skipWhitespace(html, i);
+      if (i >= length) {
+        return Optional.empty();
+      }
+
+      final char c = html.charAt(i);
+      if (c == '>') {
+        i++;
+        break;
+      } else if (c == '/' || c == '"' || c == '\'' || c == '<' || c == '=') {
+        return Optional.empty();
+      }
+
+      final int nameStart = i;
+      while (i < length && !isWhitespace(html.charAt(i)) && "=>/\"'<".indexOf(html.charAt(i)) < 0) {
+        i++;
+      }
+      final boolean isHref = i - nameStart == 4
+        && html.regionMatches(true, nameStart, "href", 0, 4);
+
+      i = skipWhitespace(html, i);
+      if (i < length && html.charAt(i) == '=') {
+        i = skipWhitespace(html, i + 1);
+        if (i >= length) {
+          return Optional.empty();
+        }
+
+        final char quote = html.charAt(i);
+        final int valueStart;
+        final int valueEnd;
+        if (quote == '"' || quote == '\'') {
+          valueStart = i + 1;
+          valueEnd = html.indexOf(quote, valueStart);
+          if (valueEnd < 0) {
+            return Optional.empty();
+          }
+          i = valueEnd + 1;
+        } else {
+          valueStart = i;
+          while (i < length && !isWhitespace(html.charAt(i)) && html.charAt(i) != '>') {
+            i++;
+          }
+          valueEnd = i;
+        }
+
+        // the first attribute wins, same as in jsoup
+        if (isHref && href == null) {
+          href = unescape(html.substring(valueStart, valueEnd), true);
+        }
+      } else if (isHref && href == null) {
+        href = "";
+      }
+    }
+
+    if (href == null) {
+      return Optional.empty();
+    }
+
+    // text content, up to the end tag
+    final StringBuilder text = new StringBuilder(length - i);
+    while (true) {
+      final int tagStart = html.indexOf('<', i);
+      if (tagStart < 0) {
+        return Optional.empty();
+      }
+
+      appendText(text, html, i, tagStart);
+
+      if (isEndTag(html, tagStart, "a")) {
+        return Optional.of(new LinkElement(text.toString(), href));
+      } else if (html.startsWith("<!--", tagStart)) {
+        final int commentEnd = html.indexOf("-->", tagStart + 4);
+        if (commentEnd < 0) {
+          return Optional.empty();
+        }
+        i = commentEnd + 3;
+      } else if (isNestedTag(html, tagStart)) {
+        i = skipTag(html, tagStart);
+        if (i < 0) {
+          return Optional.empty();
+        }
+      } else {
+        return Optional.empty();
+      }
+    }
+  }
+
+  private static void appendText(StringBuilder text, String html, int start, int end) {
+    if (start == end) {
+      return;
+    }
+
+    final String segment = html.substring(start, end);
+    text.append(segment.indexOf('&') < 0 ? segment : unescape(segment, false));
+  }
+
+  private static String unescape(String value, boolean inAttribute) {
+    return value.indexOf('&') < 0 ? value : Parser.unescapeEntities(value, inAttribute);
+  }
+
+  /**
+   * Check whether a nested start or end tag the extractor can skip starts at
+   * the index.
+   */
+  private static boolean isNestedTag(String html, int tagStart) {
+    int nameStart = tagStart + 1;
+    if (nameStart < html.length() && html.charAt(nameStart) == '/') {
+      nameStart++;
+    }
+
+    if (nameStart >= html.length() || !Character.isLetter(html.charAt(nameStart))) {
+      return false;
+    }
+
+    for (String tag : UNSUPPORTED_NESTED_TAGS) {
+      if (isTagName(html, nameStart, tag)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Skip a tag, including its quoted attribute values.
+   *
+   * @return the index after the tag, or -1 if the tag does not end
+   */
+  private static int skipTag(String html, int tagStart) {
+    char quote = 0;
+    for (int i = tagStart + 1; i < html.length(); i++) {
+      final char c = html.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return i + 1;
+      }
+    }
+
+    return -1;
+  }
+
+  private static boolean isStartTag(String html, int i, String tag) {
+    return i < html.length() && html.charAt(i) == '<' && isTagName(html, i + 1, tag);
+  }
+
+  private static boolean isEndTag(String html, int i, String tag) {
+    return html.startsWith("</", i) && isTagName(html, i + 2, tag);
+  }
+
+  /**
+   * Check whether the tag name starting at the index is the given name,
+   * ignoring case.
+   */
+  private static boolean isTagName(String html, int nameStart, String tag) {
+    final int nameEnd = nameStart + tag.length();
+    if (!html.regionMatches(true, nameStart, tag, 0, tag.length())) {
+      return false;
+    }
+
+    return nameEnd < html.length()
+      && (isWhitespace(html.charAt(nameEnd)) || html.charAt(nameEnd) == '>' || html.charAt(nameEnd) == '/');
+  }
+
+  private static int skipWhitespace(String html, int i) {
+    while (i < html.length() && isWhitespace(html.charAt(i))) {
+      i++;
+    }
+
+    return i;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+  }
+}
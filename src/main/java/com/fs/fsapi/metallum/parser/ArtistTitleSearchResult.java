@@ -1,10 +1,14 @@
 package com.fs.fsapi.metallum.parser;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fs.fsapi.bookmark.parser.LinkElement;
 
 import lombok.AllArgsConstructor;
 
 @AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class ArtistTitleSearchResult {
 
   private LinkElement artistFolderLink;
@@ -13,6 +17,25 @@ public class ArtistTitleSearchResult {
 
   private String releaseType;
 
+  /**
+   * Create a search result from its serialized form. Derived ids are
+   * ignored, they are always extracted from the links.
+   */
+  @JsonCreator
+  public ArtistTitleSearchResult(
+    @JsonProperty("artist") String artist,
+    @JsonProperty("artistHref") String artistHref,
+    @JsonProperty("title") String title,
+    @JsonProperty("titleHref") String titleHref,
+    @JsonProperty("releaseType") String releaseType
+  ) {
+    this(
+      new LinkElement(artist, artistHref),
+      new LinkElement(title, titleHref),
+      releaseType
+    );
+  }
+
   public String getArtist() {
     return artistFolderLink.getText();
   }
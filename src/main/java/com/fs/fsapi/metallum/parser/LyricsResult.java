@@ -3,6 +3,9 @@ package com.fs.fsapi.metallum.parser;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import lombok.Getter;
 
 @Getter
@@ -20,4 +23,13 @@ public class LyricsResult {
     this.error = "";
     this.lyrics = lyrics;
   }
+
+  @JsonCreator
+  public LyricsResult(
+    @JsonProperty("error") String error,
+    @JsonProperty("lyrics") List<String> lyrics
+  ) {
+    this.error = error;
+    this.lyrics = lyrics;
+  }
 }
@@ -1,14 +1,23 @@
 package com.fs.fsapi.metallum.parser;
 
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
 import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
 import org.springframework.stereotype.Service;
 
 import com.fs.fsapi.bookmark.parser.LinkElement;
@@ -24,6 +33,14 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class MetallumParser {
 
+  private static final Evaluator SONG_TABLE = QueryParser.parse(".table_lyrics");
+
+  private static final Evaluator SONG_TABLE_BODY = QueryParser.parse(".table_lyrics > tbody");
+
+  private static final Evaluator ALBUM_INFO = QueryParser.parse("#album_info");
+
+  private static final Evaluator COVER_LINK = QueryParser.parse("a#cover");
+
   /**
    * Extract the best result from the response.
    * 
@@ -36,6 +53,42 @@ public class MetallumParser {
    */
   public ArtistTitleSearchResult getSearchResult(
     ArtistTitleSearchResponse response, String artist, String title
+  ) {
+    checkSearchResponse(response, artist, title);
+
+    if (response.getTotalRecords() > 1) {
+      // every result is available as a ranked candidate list
+      log.info("Found multiple results for '" + title + "' by '" + artist + "'");
+    }
+
+    // return the first result
+    AaDataValue data = response.getAaData().get(0);
+    return parseSearchData(data);
+  }
+
+  /**
+   * Extract every result from the response, in the order of the response.
+   * Only the results of the returned page are extracted.
+   * 
+   * @param response  object where to extract details from
+   * @param artist  the artist name used in the response, used for logging
+   *                and error messages only
+   * @param title  the release title used in the response, used for logging
+   *               and error messages only
+   * @return the extracted results, not empty
+   */
+  public List<ArtistTitleSearchResult> getSearchResults(
+    ArtistTitleSearchResponse response, String artist, String title
+  ) {
+    checkSearchResponse(response, artist, title);
+
+    return response.getAaData().stream()
+      .map(this::parseSearchData)
+      .toList();
+  }
+
+  private void checkSearchResponse(
+    ArtistTitleSearchResponse response, String artist, String title
   ) {
     if (!response.getError().isBlank()) {
       log.info(
@@ -46,26 +99,10 @@ public class MetallumParser {
       throw new CustomMetallumException(response.getError());
     }
 
-    switch (response.getTotalRecords()) {
-      case 0: {
-        throw new CustomDataNotFoundException(
-          "No results for '" + title + "' by '" + artist + "'"
-        );
-      }
-      case 1: {
-        // return the only result
-        AaDataValue data = response.getAaData().get(0);
-        return parseSearchData(data);
-      }
-      default: {
-        log.info("Found multiple results for '" + title + "' by '" + artist);
-
-        // return the first result...
-        // - implement narrowing by release type?
-        // - return a list of results?
-        AaDataValue data = response.getAaData().get(0);
-        return parseSearchData(data);
-      }
+    if (response.getTotalRecords() == 0 || response.getAaData().isEmpty()) {
+      throw new CustomDataNotFoundException(
+        "No results for '" + title + "' by '" + artist + "'"
+      );
     }
   }
 
@@ -78,6 +115,12 @@ public class MetallumParser {
   }
 
   private LinkElement parseSearchDataElementOuterHtml(String html) {
+    // jsoup is needed only for fragments the extractor does not handle
+    return AnchorExtractor.extract(html)
+      .orElseGet(() -> parseSearchDataElementOuterHtmlWithJsoup(html));
+  }
+
+  LinkElement parseSearchDataElementOuterHtmlWithJsoup(String html) {
     final Element e = Jsoup.parse(html).selectFirst("a");
 
     if (e == null) {
@@ -100,15 +143,95 @@ public class MetallumParser {
    * @return list of songs
    */
   public List<SongResult> parseSongs(String html) {
-    Document doc = Jsoup.parse(html);
+    return parseSongs(new StringReader(html));
+  }
 
-    Element tbody = doc.select(".table_lyrics > tbody").first();
-    if (tbody == null) {
-      throw new CustomMetallumScrapingException(
-        "Song table was not found"
-      );
+  /**
+   * Extract songs from the song table while the page is read, see
+   * {@link #parseTitlePage(Reader)}.
+   * 
+   * @param html  reader of the page where the song table can be found
+   * @return list of songs
+   * @throws UncheckedIOException if the page can not be read
+   */
+  public List<SongResult> parseSongs(Reader html) {
+    return parseTitlePage(html).getSongs();
+  }
+
+  /**
+   * Extract the release details, the cover image link and the songs from
+   * the release title page while it is read. Reading stops once the song
+   * table has been read, and the elements not needed are dropped as soon
+   * as they have been parsed, so the page is never held as a whole.
+   * 
+   * @param html  reader of the release title page
+   * @return the details and songs of the release
+   * @throws UncheckedIOException if the page can not be read
+   * @throws CustomMetallumScrapingException if the song table is not found
+   */
+  public TitlePageResult parseTitlePage(Reader html) {
+    String coverUrl = null;
+    Element albumInfo = null;
+
+    try (StreamParser streamer = new StreamParser(Parser.htmlParser())) {
+      final Iterator<Element> elements = streamer.parse(html, "").stream().iterator();
+      while (elements.hasNext()) {
+        final Element element = elements.next();
+        if (element.is(SONG_TABLE_BODY)) {
+          return new TitlePageResult(
+            parseReleaseDetails(albumInfo, coverUrl),
+            parseSongRows(element)
+          );
+        } else if (element.is(COVER_LINK) && element.hasAttr("href")) {
+          coverUrl = element.attr("href");
+        } else if (element.is(ALBUM_INFO)) {
+          albumInfo = element;
+        }
+
+        // the release details are read from the elements kept
+        if (element.closest(SONG_TABLE) == null && element.closest(ALBUM_INFO) == null) {
+          element.remove();
+        }
+      }
+    }
+
+    throw new CustomMetallumScrapingException(
+      "Song table was not found"
+    );
+  }
+
+  private ReleaseDetailsResult parseReleaseDetails(Element albumInfo, String coverUrl) {
+    if (albumInfo == null) {
+      return new ReleaseDetailsResult(null, null, null, null, null, null, null, coverUrl);
     }
 
+    // details are listed as term and description pairs, for example
+    // "Release date:" and "June 22nd, 1996"
+    final Map<String, String> values = new HashMap<>();
+    for (Element term : albumInfo.select("dt")) {
+      final Element description = term.nextElementSibling();
+      if (description != null && description.normalName().equals("dd")) {
+        values.put(term.text().replaceFirst(":$", ""), description.text());
+      }
+    }
+
+    return new ReleaseDetailsResult(
+      textOf(albumInfo.selectFirst(".album_name")),
+      textOf(albumInfo.selectFirst(".band_name")),
+      values.get("Type"),
+      values.get("Release date"),
+      values.get("Catalog ID"),
+      values.get("Label"),
+      values.get("Format"),
+      coverUrl
+    );
+  }
+
+  private static String textOf(Element element) {
+    return element == null ? null : element.text();
+  }
+
+  private List<SongResult> parseSongRows(Element tbody) {
     List<SongResult> songs = new ArrayList<>();
     tbody.children().stream()
       .forEach(tr -> {
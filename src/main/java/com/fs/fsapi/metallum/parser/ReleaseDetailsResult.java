@@ -0,0 +1,31 @@
+package com.fs.fsapi.metallum.parser;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Release details from the release title page. Details missing from the
+ * page are {@code null}.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReleaseDetailsResult {
+
+  private String title;
+
+  private String artist;
+
+  private String releaseType;
+
+  private String releaseDate;
+
+  private String catalogId;
+
+  private String label;
+
+  private String format;
+
+  private String coverUrl; // the full size cover image url
+}
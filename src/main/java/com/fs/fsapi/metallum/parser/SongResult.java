@@ -2,8 +2,10 @@ package com.fs.fsapi.metallum.parser;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 
 @Getter
+@NoArgsConstructor
 @AllArgsConstructor
 public class SongResult {
   
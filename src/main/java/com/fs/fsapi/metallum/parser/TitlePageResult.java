@@ -0,0 +1,20 @@
+package com.fs.fsapi.metallum.parser;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Everything used from a single release title page.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TitlePageResult {
+
+  private ReleaseDetailsResult details;
+
+  private List<SongResult> songs;
+}
@@ -2,27 +2,35 @@ package com.fs.fsapi.metallum.response;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fs.fsapi.exceptions.CustomMetallumScrapingException;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Reads the search response token by token, building the data rows as they
+ * are read instead of reading the response into a tree first. The shape of
+ * the response is validated while reading, and unknown properties are
+ * skipped.
+ */
 @Slf4j
 public class ArtistTitleSearchResponseDeserializer extends StdDeserializer<ArtistTitleSearchResponse> {
 
   // response properties
-  private final String ERROR_PROPERTY = "error"; 
-  private final String TOTAL_RECORDS_PROPERTY = "iTotalRecords";
-  private final String TOTAL_DISPLAY_RECORDS_PROPERTY = "iTotalRecords";
-  private final String DATA_PROPERTY = "aaData";
-  //private final String ECHO_PROPERTY = "sEcho"; // unknown int value in response...
+  private static final String ERROR_PROPERTY = "error"; 
+  private static final String TOTAL_RECORDS_PROPERTY = "iTotalRecords";
+  private static final String TOTAL_DISPLAY_RECORDS_PROPERTY = "iTotalRecords";
+  private static final String DATA_PROPERTY = "aaData";
+  //private static final String ECHO_PROPERTY = "sEcho"; // unknown int value in response...
+
+  // artist link, title link and release type
+  private static final int DATA_ROW_LENGTH = 3;
 
   public ArtistTitleSearchResponseDeserializer() {
     this(null);
@@ -34,78 +42,153 @@ public class ArtistTitleSearchResponseDeserializer extends StdDeserializer<Artis
 
   @Override
   public ArtistTitleSearchResponse deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-    JsonNode node = jp.getCodec().readTree(jp);
-    ObjectNode obj = (ObjectNode) node;
+    JsonToken token = jp.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = jp.nextToken();
+    } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+      throw new CustomMetallumScrapingException(
+        "Expected the response '" + jp.getText() + "' to be an object"
+      );
+    }
 
-    JsonNode x = getProperty(obj, DATA_PROPERTY);
-    if (!x.isArray()) {
+    String error = null;
+    Integer totalRecords = null;
+    Integer totalDisplayRecords = null;
+    List<AaDataValue> dataList = null;
+
+    for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+      final String propertyName = jp.currentName();
+      jp.nextToken();
+
+      if (propertyName.equals(ERROR_PROPERTY)) {
+        error = readText(jp, propertyName);
+      } else if (propertyName.equals(DATA_PROPERTY)) {
+        dataList = readData(jp);
+      } else if (propertyName.equals(TOTAL_RECORDS_PROPERTY)
+        || propertyName.equals(TOTAL_DISPLAY_RECORDS_PROPERTY)) {
+        // both are currently read from the same property
+        final int value = readInt(jp, propertyName);
+        if (propertyName.equals(TOTAL_RECORDS_PROPERTY)) {
+          totalRecords = value;
+        }
+        if (propertyName.equals(TOTAL_DISPLAY_RECORDS_PROPERTY)) {
+          totalDisplayRecords = value;
+        }
+      } else {
+        jp.skipChildren();
+      }
+    }
+
+    return new ArtistTitleSearchResponse(
+      requireProperty(error, ERROR_PROPERTY),
+      requireProperty(totalRecords, TOTAL_RECORDS_PROPERTY),
+      requireProperty(totalDisplayRecords, TOTAL_DISPLAY_RECORDS_PROPERTY),
+      requireProperty(dataList, DATA_PROPERTY)
+    );
+  }
+
+  private List<AaDataValue> readData(JsonParser jp) throws IOException {
+    if (jp.currentToken() != JsonToken.START_ARRAY) {
       throw new CustomMetallumScrapingException(
         "Expected property '" + DATA_PROPERTY + "' value '"
-        + x.toPrettyString() + "' to be an array"
+        + jp.getText() + "' to be an array"
       );
     }
 
     // 2d array
-    Iterator<JsonNode> xItr = x.iterator();
     List<AaDataValue> dataList = new ArrayList<>();
-    while (xItr.hasNext()) {
-      JsonNode y = xItr.next();
-      if (!y.isArray() || y.size() != 3) {
-        throw new CustomMetallumScrapingException(
-          "Expected the value '" + y.toPrettyString() + "' of property '"
-          + DATA_PROPERTY + "' be an array of length of 3"
-        );
-      }
+    while (jp.nextToken() != JsonToken.END_ARRAY) {
+      dataList.add(readDataRow(jp, dataList.size()));
+    }
+
+    return dataList;
+  }
+
+  private AaDataValue readDataRow(JsonParser jp, int index) throws IOException {
+    if (jp.currentToken() != JsonToken.START_ARRAY) {
+      throw invalidDataRow(jp, index);
+    }
 
-      Iterator<JsonNode> yItr = y.iterator();
-      List<String> dataRow = new ArrayList<>();
-      while (yItr.hasNext()) {
-        JsonNode dataNode = yItr.next();
-        dataRow.add(dataNode.asText());
+    final String[] dataRow = new String[DATA_ROW_LENGTH];
+    int length = 0;
+    while (jp.nextToken() != JsonToken.END_ARRAY) {
+      if (length == DATA_ROW_LENGTH) {
+        throw invalidDataRow(jp, index);
       }
 
-      dataList.add(new AaDataValue(dataRow));
+      dataRow[length++] = readDataValue(jp);
     }
-    
-    return new ArtistTitleSearchResponse(
-      asText(obj, ERROR_PROPERTY),
-      asInt(obj, TOTAL_RECORDS_PROPERTY),
-      asInt(obj, TOTAL_DISPLAY_RECORDS_PROPERTY),
-      dataList
+
+    if (length != DATA_ROW_LENGTH) {
+      throw invalidDataRow(jp, index);
+    }
+
+    return new AaDataValue(Arrays.asList(dataRow));
+  }
+
+  /**
+   * Read a data value as text, the same way as {@code JsonNode.asText()}.
+   * Arrays and objects have no text.
+   */
+  private String readDataValue(JsonParser jp) throws IOException {
+    if (jp.currentToken() == null) {
+      throw new CustomMetallumScrapingException(
+        "Unexpected end of property '" + DATA_PROPERTY + "' value"
+      );
+    } else if (jp.currentToken().isStructStart()) {
+      jp.skipChildren();
+      return "";
+    }
+
+    return jp.getText();
+  }
+
+  private CustomMetallumScrapingException invalidDataRow(JsonParser jp, int index) {
+    return new CustomMetallumScrapingException(
+      "Expected the value at index " + index + " of property '"
+      + DATA_PROPERTY + "' be an array of length of " + DATA_ROW_LENGTH
+      + ", found '" + getTextQuietly(jp) + "' at " + jp.currentLocation().offsetDescription()
     );
   }
 
-  private String asText(ObjectNode obj, String propertyName) {
-    final JsonNode node = getProperty(obj, propertyName);
-    if (!node.isTextual()) {
+  private String readText(JsonParser jp, String propertyName) throws IOException {
+    if (jp.currentToken() != JsonToken.VALUE_STRING) {
       throw new CustomMetallumScrapingException(
         "Expected the property '" + propertyName + "' value '"
-        + node.toPrettyString() + "' to be a basic string value"
+        + jp.getText() + "' to be a basic string value"
       );
     }
 
-    return node.asText();
+    return jp.getText();
   }
 
-  private int asInt(ObjectNode obj, String propertyName) {
-    final JsonNode node = getProperty(obj, propertyName);
-    if (!node.isInt()) {
+  private int readInt(JsonParser jp, String propertyName) throws IOException {
+    if (jp.currentToken() != JsonToken.VALUE_NUMBER_INT
+      || jp.getNumberType() != JsonParser.NumberType.INT) {
       throw new CustomMetallumScrapingException(
         "Expected the property '" + propertyName + "' value '"
-        + node.toPrettyString() + "' to be presentable as int"
+        + jp.getText() + "' to be presentable as int"
       );
     }
 
-    return node.asInt();
+    return jp.getIntValue();
   }
 
-  private JsonNode getProperty(ObjectNode obj, String propertyName) {
-    if (!obj.has(propertyName)) {
+  private <T> T requireProperty(T value, String propertyName) {
+    if (value == null) {
       throw new CustomMetallumScrapingException(
-        "Expected the object '" + obj.toPrettyString()
-        + "' to have property '" + propertyName + "'"
+        "Expected the response to have property '" + propertyName + "'"
       );
     }
-    return obj.get(propertyName);
+
+    return value;
+  }
+
+  private String getTextQuietly(JsonParser jp) {
+    try {
+      return jp.getText();
+    } catch (IOException e) {
+      return "";
+    }
   }
 }
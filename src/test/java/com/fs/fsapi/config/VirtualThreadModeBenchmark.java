@@ -0,0 +1,96 @@
+package com.fs.fsapi.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Compares the {@code blockingScheduler} bean of {@link CustomSchedulerConfig}
+ * with {@code spring.threads.virtual.enabled} off and on, running many
+ * concurrent blocking tasks as the reactive pipelines do. Each task blocks
+ * for a fixed latency, standing in for a slow persistent cache query or
+ * file write. Not run by the tests, run the main method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VirtualThreadModeBenchmark {
+
+  private static final Duration BLOCKING_LATENCY = Duration.ofMillis(50);
+
+  @Param({ "false", "true" })
+  private boolean virtualThreads;
+
+  @Param({ "1000" })
+  private int tasks;
+
+  private AnnotationConfigApplicationContext context;
+
+  private Scheduler blockingScheduler;
+
+  @Setup
+  public void start() {
+    context = new AnnotationConfigApplicationContext();
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource(
+      "benchmark",
+      Map.of("spring.threads.virtual.enabled", virtualThreads)
+    ));
+    context.register(CustomSchedulerConfig.class);
+    context.refresh();
+
+    blockingScheduler = context.getBean("blockingScheduler", Scheduler.class);
+  }
+
+  @TearDown
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public long runConcurrentBlockingTasks() {
+    return Flux.range(0, tasks)
+      .flatMap(
+        id -> Mono.fromCallable(() -> block(id)).subscribeOn(blockingScheduler),
+        tasks
+      )
+      .count()
+      .block();
+  }
+
+  private static int block(int id) throws InterruptedException {
+    Thread.sleep(BLOCKING_LATENCY.toMillis());
+    return id;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(VirtualThreadModeBenchmark.class.getSimpleName())
+      .build()
+    ).run();
+  }
+}
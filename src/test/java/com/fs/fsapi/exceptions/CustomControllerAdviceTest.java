@@ -0,0 +1,35 @@
+package com.fs.fsapi.exceptions;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fs.fsapi.exceptions.response.ErrorResponse;
+
+public class CustomControllerAdviceTest {
+
+  private final CustomControllerAdvice advice = new CustomControllerAdvice();
+
+  @Test
+  public void shouldMapUpstreamNotFoundToNotFoundTest() {
+    ResponseEntity<ErrorResponse> ent = advice.handleWebClientResponseExceptions(
+      WebClientResponseException.create(404, "Not Found", null, null, null)
+    );
+
+    assertEquals(HttpStatus.NOT_FOUND.value(), ent.getStatusCode().value());
+    assertEquals(HttpStatus.NOT_FOUND.value(), ent.getBody().getCode());
+  }
+
+  @Test
+  public void shouldMapOtherUpstreamClientErrorsToBadGatewayTest() {
+    ResponseEntity<ErrorResponse> ent = advice.handleWebClientResponseExceptions(
+      WebClientResponseException.create(403, "Forbidden", null, null, null)
+    );
+
+    assertEquals(HttpStatus.BAD_GATEWAY.value(), ent.getStatusCode().value());
+    assertEquals(HttpStatus.BAD_GATEWAY.value(), ent.getBody().getCode());
+  }
+}
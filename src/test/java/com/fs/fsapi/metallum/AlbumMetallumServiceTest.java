@@ -0,0 +1,130 @@
+package com.fs.fsapi.metallum;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fs.fsapi.album.Album;
+import com.fs.fsapi.album.AlbumService;
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.helpers.MetallumFileHelper;
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+import com.fs.fsapi.metallum.parser.ReleaseDetailsResult;
+import com.fs.fsapi.metallum.parser.SongResult;
+import com.fs.fsapi.metallum.parser.TitlePageResult;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@ExtendWith(MockitoExtension.class)
+public class AlbumMetallumServiceTest {
+
+  @Mock
+  private AlbumService albumService;
+
+  @Mock
+  private MetallumService metallumService;
+
+  private AlbumMetallumService service;
+
+  private final Album album = new Album(
+    1, "dQw4w9WgXcQ", "Adramelech", "Psychostasia", 1996, "Death Metal", "2024-01-01T00:00:00Z"
+  );
+
+  private final ArtistTitleSearchResult search = MetallumFileHelper.SEARCH_RESULT;
+
+  @BeforeEach
+  public void create() {
+    service = new AlbumMetallumService(
+      albumService,
+      metallumService,
+      Schedulers.immediate(),
+      Duration.ofSeconds(1),
+      Duration.ofMillis(100)
+    );
+  }
+
+  @Test
+  public void shouldResolveEveryPartTest() {
+    final List<SongResult> songs = List.of();
+    final ReleaseDetailsResult release = new ReleaseDetailsResult(
+      "Psychostasia", "Adramelech", "Full-length", "June 22nd, 1996",
+      "RPS 015 CD", "Repulse Records", "CD", null
+    );
+    when(albumService.findOne(1)).thenReturn(album);
+    when(metallumService.searchByArtistAndTitleReactive("Adramelech", "Psychostasia"))
+      .thenReturn(Mono.just(search));
+    when(metallumService.searchTitlePageReactive(search.getTitleId()))
+      .thenReturn(Mono.just(new TitlePageResult(release, songs)));
+    when(metallumService.createArtistLogoUrl(search.getArtistId()))
+      .thenReturn("logo");
+    when(metallumService.createTitleCoverUrl(search.getTitleId()))
+      .thenReturn("cover");
+
+    final AlbumMetallumDetails actual = service.findDetails(1).block();
+
+    assertEquals(album, actual.getAlbum());
+    assertEquals(search, actual.getSearch());
+    assertEquals(songs, actual.getSongs());
+    assertEquals(release, actual.getRelease());
+    assertEquals("logo", actual.getArtistLogoUrl());
+    assertEquals("cover", actual.getTitleCoverUrl());
+    assertNull(actual.getErrors());
+  }
+
+  @Test
+  public void shouldReturnAlbumWhenSearchFailsTest() {
+    when(albumService.findOne(1)).thenReturn(album);
+    when(metallumService.searchByArtistAndTitleReactive("Adramelech", "Psychostasia"))
+      .thenReturn(Mono.error(new CustomDataNotFoundException("No results")));
+
+    final AlbumMetallumDetails actual = service.findDetails(1).block();
+
+    assertEquals(album, actual.getAlbum());
+    assertNull(actual.getSearch());
+    assertEquals(404, actual.getErrors().get("search").getCode());
+    verify(metallumService, never()).searchTitlePageReactive(any());
+  }
+
+  @Test
+  public void shouldReturnPartialResultWhenSongsTimeOutTest() {
+    when(albumService.findOne(1)).thenReturn(album);
+    when(metallumService.searchByArtistAndTitleReactive("Adramelech", "Psychostasia"))
+      .thenReturn(Mono.just(search));
+    when(metallumService.searchTitlePageReactive(search.getTitleId()))
+      .thenReturn(Mono.never());
+    when(metallumService.createArtistLogoUrl(search.getArtistId()))
+      .thenReturn("logo");
+    when(metallumService.createTitleCoverUrl(search.getTitleId()))
+      .thenReturn("cover");
+
+    final AlbumMetallumDetails actual = service.findDetails(1).block();
+
+    assertEquals(search, actual.getSearch());
+    assertNull(actual.getSongs());
+    assertNull(actual.getRelease());
+    assertEquals("cover", actual.getTitleCoverUrl());
+    assertEquals(504, actual.getErrors().get("songs").getCode());
+  }
+
+  @Test
+  public void shouldFailWhenAlbumDoesNotExistTest() {
+    when(albumService.findOne(1))
+      .thenThrow(new CustomDataNotFoundException("Album was not found"));
+
+    assertThrows(CustomDataNotFoundException.class, () -> service.findDetails(1).block());
+  }
+}
@@ -0,0 +1,130 @@
+package com.fs.fsapi.metallum;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.exceptions.CustomParameterConstraintException;
+import com.fs.fsapi.helpers.MetallumFileHelper;
+import com.fs.fsapi.metallum.cache.ArtistTitleSearchCache;
+import com.fs.fsapi.metallum.cache.CanonicalSearchKeys;
+import com.fs.fsapi.metallum.cache.DoubleKey;
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+public class MetallumBatchSearchServiceTest {
+
+  @Mock
+  private MetallumService metallumService;
+
+  @Mock
+  private ArtistTitleSearchCache cache;
+
+  private MetallumBatchSearchService batchSearchService;
+
+  private final ArtistTitleSearchResult result = MetallumFileHelper.SEARCH_RESULT;
+
+  @BeforeEach
+  public void create() {
+    batchSearchService = new MetallumBatchSearchService(
+      metallumService, cache, new CanonicalSearchKeys(false), 3, 2
+    );
+  }
+
+  @Test
+  public void shouldReturnCachedResultsWithoutSearchingTest() {
+    when(cache.getAll(any()))
+      .thenReturn(Map.of(new DoubleKey<>("Adramelech", "Psychostasia"), result));
+
+    final List<ArtistTitleBatchSearchResult> actual = batchSearchService
+      .search(List.of(new ArtistTitleSearchRequest("Adramelech", "Psychostasia")))
+      .collectList()
+      .block();
+
+    assertEquals(1, actual.size());
+    assertEquals(result, actual.get(0).getResult());
+    verify(metallumService, never()).searchByArtistAndTitleReactive(any(), any());
+  }
+
+  @Test
+  public void shouldSearchEquivalentPairsOnceTest() {
+    when(cache.getAll(any()))
+      .thenReturn(Collections.emptyMap());
+    when(metallumService.searchByArtistAndTitleReactive("Adramelech", "Psychostasia"))
+      .thenReturn(Mono.just(result));
+
+    final List<ArtistTitleBatchSearchResult> actual = batchSearchService
+      .search(List.of(
+        new ArtistTitleSearchRequest("Adramelech", "Psychostasia"),
+        new ArtistTitleSearchRequest("ADRAMELECH", "psychostasia ")
+      ))
+      .collectList()
+      .block();
+
+    assertEquals(2, actual.size());
+    assertEquals("ADRAMELECH", actual.get(1).getArtist());
+    assertEquals(result, actual.get(1).getResult());
+    verify(metallumService, times(1)).searchByArtistAndTitleReactive(any(), any());
+  }
+
+  @Test
+  public void shouldReturnErrorOfFailedSearchTest() {
+    when(cache.getAll(any()))
+      .thenReturn(Collections.emptyMap());
+    when(metallumService.searchByArtistAndTitleReactive("Adramelek", "Psychostasia"))
+      .thenReturn(Mono.error(new CustomDataNotFoundException("No results")));
+    when(metallumService.searchByArtistAndTitleReactive("Adramelech", "Psychostasia"))
+      .thenReturn(Mono.just(result));
+
+    final List<ArtistTitleBatchSearchResult> actual = batchSearchService
+      .search(List.of(
+        new ArtistTitleSearchRequest("Adramelek", "Psychostasia"),
+        new ArtistTitleSearchRequest("Adramelech", "Psychostasia")
+      ))
+      .collectList()
+      .block();
+
+    final ArtistTitleBatchSearchResult failed = actual.stream()
+      .filter(item -> item.getArtist().equals("Adramelek"))
+      .findFirst()
+      .orElseThrow();
+
+    assertEquals(2, actual.size());
+    assertNull(failed.getResult());
+    assertEquals(404, failed.getError().getCode());
+    assertEquals("No results", failed.getError().getMessage());
+  }
+
+  @Test
+  public void shouldNotAllowBatchOverMaximumSizeTest() {
+    final List<ArtistTitleSearchRequest> requests = List.of(
+      new ArtistTitleSearchRequest("1", "1"),
+      new ArtistTitleSearchRequest("2", "2"),
+      new ArtistTitleSearchRequest("3", "3"),
+      new ArtistTitleSearchRequest("4", "4")
+    );
+
+    assertThrows(
+      CustomParameterConstraintException.class,
+      () -> batchSearchService.search(requests)
+    );
+  }
+}
@@ -0,0 +1,150 @@
+package com.fs.fsapi.metallum;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.fs.fsapi.album.Album;
+import com.fs.fsapi.album.AlbumRepository;
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.exceptions.CustomMetallumException;
+import com.fs.fsapi.helpers.MetallumFileHelper;
+import com.fs.fsapi.metallum.cache.ArtistTitleSearchCache;
+import com.fs.fsapi.metallum.client.MetallumCircuitBreaker;
+
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+public class MetallumCacheWarmUpTest {
+
+  @Mock
+  private AlbumRepository albumRepository;
+
+  @Mock
+  private MetallumService metallumService;
+
+  @Mock
+  private ArtistTitleSearchCache cache;
+
+  private MetallumCircuitBreaker circuitBreaker;
+
+  private MetallumCacheWarmUp warmUp;
+
+  private final Album album1 = album(1, "Artist 1", "Title 1");
+  private final Album album2 = album(2, "Artist 2", "Title 2");
+  private final Album album3 = album(3, "Artist 3", "Title 3");
+
+  @BeforeEach
+  public void create() {
+    circuitBreaker = new MetallumCircuitBreaker(1, Duration.ofMinutes(1));
+    warmUp = new MetallumCacheWarmUp(
+      albumRepository, metallumService, cache, circuitBreaker, true, 2, 1000, 2
+    );
+  }
+
+  @Test
+  public void shouldSearchEveryAlbumOfEveryPageTest() {
+    final Pageable first = PageRequest.of(0, 2, Sort.by("id"));
+    when(albumRepository.findAll(first))
+      .thenReturn(new PageImpl<>(List.of(album1, album2), first, 3));
+    when(albumRepository.findAll(first.next()))
+      .thenReturn(new PageImpl<>(List.of(album3), first.next(), 3));
+    when(cache.inspect(any(), any()))
+      .thenReturn(Optional.empty());
+    when(metallumService.searchByArtistAndTitleReactive(any(), any()))
+      .thenReturn(Mono.just(MetallumFileHelper.SEARCH_RESULT));
+
+    warmUp.run();
+
+    verify(metallumService).searchByArtistAndTitleReactive("Artist 1", "Title 1");
+    verify(metallumService).searchByArtistAndTitleReactive("Artist 2", "Title 2");
+    verify(metallumService).searchByArtistAndTitleReactive("Artist 3", "Title 3");
+    assertEquals(3, warmUp.getProcessed());
+    assertEquals(0, warmUp.getEtaSeconds());
+  }
+
+  @Test
+  public void shouldSkipCachedAlbumsTest() {
+    final Pageable first = PageRequest.of(0, 2, Sort.by("id"));
+    when(albumRepository.findAll(first))
+      .thenReturn(new PageImpl<>(List.of(album1), first, 1));
+    when(cache.inspect("Artist 1", "Title 1"))
+      .thenReturn(Optional.<Object>of(MetallumFileHelper.SEARCH_RESULT));
+
+    warmUp.run();
+
+    verify(metallumService, never()).searchByArtistAndTitleReactive(any(), any());
+    assertEquals(1, warmUp.getProcessed());
+  }
+
+  @Test
+  public void shouldSkipAlbumsWhileCircuitBreakerIsNotClosedTest() {
+    circuitBreaker
+      .protect(Mono.error(new TimeoutException()), e -> true)
+      .onErrorResume(e -> Mono.empty())
+      .block();
+
+    final Pageable first = PageRequest.of(0, 2, Sort.by("id"));
+    when(albumRepository.findAll(first))
+      .thenReturn(new PageImpl<>(List.of(album1, album2), first, 2));
+    when(cache.inspect(any(), any()))
+      .thenReturn(Optional.empty());
+
+    warmUp.run();
+
+    verify(metallumService, never()).searchByArtistAndTitleReactive(any(), any());
+    assertEquals(2, warmUp.getProcessed());
+    assertEquals(2, warmUp.getSkipped());
+    assertEquals(0, warmUp.getFailed());
+  }
+
+  @Test
+  public void shouldCountFailedSearchesButNotMissingResultsTest() {
+    final Pageable first = PageRequest.of(0, 2, Sort.by("id"));
+    when(albumRepository.findAll(first))
+      .thenReturn(new PageImpl<>(List.of(album1, album2), first, 2));
+    when(cache.inspect(any(), any()))
+      .thenReturn(Optional.empty());
+    when(metallumService.searchByArtistAndTitleReactive("Artist 1", "Title 1"))
+      .thenReturn(Mono.error(new CustomDataNotFoundException("No results")));
+    when(metallumService.searchByArtistAndTitleReactive("Artist 2", "Title 2"))
+      .thenReturn(Mono.error(new CustomMetallumException("Error")));
+
+    warmUp.run();
+
+    assertEquals(2, warmUp.getProcessed());
+    assertEquals(1, warmUp.getFailed());
+  }
+
+  @Test
+  public void shouldNotAllowNonPositiveRateTest() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new MetallumCacheWarmUp(
+        albumRepository, metallumService, cache, circuitBreaker, true, 2, 0, 2
+      )
+    );
+  }
+
+  private static Album album(Integer id, String artist, String title) {
+    return new Album(id, "dQw4w9WgXcQ", artist, title, 2000, "Metal", "2024-01-01T00:00:00Z");
+  }
+}
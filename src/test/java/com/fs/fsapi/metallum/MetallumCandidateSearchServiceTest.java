@@ -0,0 +1,158 @@
+package com.fs.fsapi.metallum;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.metallum.cache.CanonicalSearchKeys;
+import com.fs.fsapi.metallum.cache.SearchCandidatesCache;
+import com.fs.fsapi.metallum.client.InFlightRequests;
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+import com.fs.fsapi.metallum.parser.MetallumParser;
+import com.fs.fsapi.metallum.response.AaDataValue;
+import com.fs.fsapi.metallum.response.ArtistTitleSearchResponse;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+public class MetallumCandidateSearchServiceTest {
+
+  @Mock
+  private MetallumService metallumService;
+
+  private MetallumCandidateSearchService candidateSearchService;
+
+  private final ArtistTitleSearchResponse response = response(
+    row("Adramelech", "Psychostasia Live", "Live album"),
+    row("Adramelek", "Psychostasia", "Demo"),
+    row("Adramelech", "Psychostasia", "Full-length")
+  );
+
+  @BeforeEach
+  public void create() {
+    candidateSearchService = create(Duration.ofMinutes(10));
+  }
+
+  @Test
+  public void shouldRankCandidatesBySimilarityTest() {
+    when(metallumService.fetchSearchResponse("Adramelech", "Psychostasia", 20))
+      .thenReturn(Mono.just(response));
+
+    final List<ArtistTitleSearchResult> actual = candidateSearchService
+      .search("Adramelech", "Psychostasia", null)
+      .block();
+
+    assertEquals(3, actual.size());
+    assertEquals("Full-length", actual.get(0).getReleaseType());
+    assertEquals("Demo", actual.get(1).getReleaseType());
+    assertEquals("Live album", actual.get(2).getReleaseType());
+  }
+
+  @Test
+  public void shouldFilterCachedCandidatesByReleaseTypeTest() {
+    when(metallumService.fetchSearchResponse("Adramelech", "Psychostasia", 20))
+      .thenReturn(Mono.just(response));
+
+    candidateSearchService.search("Adramelech", "Psychostasia", null).block();
+    final List<ArtistTitleSearchResult> actual = candidateSearchService
+      .search("adramelech", "PSYCHOSTASIA", "demo")
+      .block();
+
+    assertEquals(1, actual.size());
+    assertEquals("Adramelek", actual.get(0).getArtist());
+    verify(metallumService, times(1)).fetchSearchResponse(any(), any(), anyInt());
+  }
+
+  @Test
+  public void shouldFailWhenNoCandidateHasReleaseTypeTest() {
+    when(metallumService.fetchSearchResponse("Adramelech", "Psychostasia", 20))
+      .thenReturn(Mono.just(response));
+
+    StepVerifier
+      .create(candidateSearchService.search("Adramelech", "Psychostasia", "Single"))
+      .expectError(CustomDataNotFoundException.class)
+      .verify();
+  }
+
+  @Test
+  public void shouldCacheMissingResultsTest() {
+    when(metallumService.fetchSearchResponse("Adramelech", "Nothing", 20))
+      .thenReturn(Mono.just(response()));
+
+    for (int i = 0; i < 2; i++) {
+      StepVerifier
+        .create(candidateSearchService.search("Adramelech", "Nothing", null))
+        .expectError(CustomDataNotFoundException.class)
+        .verify();
+    }
+
+    verify(metallumService, times(1)).fetchSearchResponse(any(), any(), anyInt());
+  }
+
+  @Test
+  public void shouldSearchMissingResultsAgainAfterNotFoundTimeToLiveTest() throws InterruptedException {
+    candidateSearchService = create(Duration.ofMillis(50));
+    when(metallumService.fetchSearchResponse("Adramelech", "Nothing", 20))
+      .thenReturn(Mono.just(response()));
+
+    StepVerifier
+      .create(candidateSearchService.search("Adramelech", "Nothing", null))
+      .expectError(CustomDataNotFoundException.class)
+      .verify();
+
+    Thread.sleep(100);
+
+    StepVerifier
+      .create(candidateSearchService.search("Adramelech", "Nothing", null))
+      .expectError(CustomDataNotFoundException.class)
+      .verify();
+
+    verify(metallumService, times(2)).fetchSearchResponse(any(), any(), anyInt());
+  }
+
+  @Test
+  public void shouldCompareSimilarityByEditDistanceTest() {
+    assertEquals(1, MetallumCandidateSearchService.similarity("abc", "abc"), 0);
+    assertEquals(1, MetallumCandidateSearchService.similarity("", ""), 0);
+    assertEquals(0.75, MetallumCandidateSearchService.similarity("abcd", "abed"), 0);
+    assertEquals(0, MetallumCandidateSearchService.similarity("abc", "xyz"), 0);
+  }
+
+  private MetallumCandidateSearchService create(Duration notFoundTimeToLive) {
+    final CanonicalSearchKeys keys = new CanonicalSearchKeys(false);
+    return new MetallumCandidateSearchService(
+      metallumService,
+      new MetallumParser(),
+      new SearchCandidatesCache(keys, 10, Duration.ofHours(1), notFoundTimeToLive),
+      keys,
+      new InFlightRequests(),
+      20
+    );
+  }
+
+  private static ArtistTitleSearchResponse response(AaDataValue... rows) {
+    return new ArtistTitleSearchResponse("", rows.length, rows.length, List.of(rows));
+  }
+
+  private static AaDataValue row(String artist, String title, String releaseType) {
+    return new AaDataValue(List.of(
+      "<a href=\"https://www.metal-archives.com/bands/" + artist + "/1\">" + artist + "</a>",
+      "<a href=\"https://www.metal-archives.com/albums/" + artist + "/" + title + "/1\">" + title + "</a>",
+      releaseType
+    ));
+  }
+}
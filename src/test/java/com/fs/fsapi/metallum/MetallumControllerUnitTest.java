@@ -0,0 +1,87 @@
+package com.fs.fsapi.metallum;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.fs.fsapi.metallum.cache.ImageDiskCache;
+import com.fs.fsapi.metallum.cache.StoredImage;
+
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+public class MetallumControllerUnitTest {
+
+  @Mock
+  private MetallumService service;
+
+  @Mock
+  private MetallumBatchSearchService batchSearchService;
+
+  @Mock
+  private MetallumCandidateSearchService candidateSearchService;
+
+  @InjectMocks
+  private MetallumController controller;
+
+  @TempDir
+  private Path directory;
+
+  private StoredImage image;
+
+  @BeforeEach
+  public void open() throws IOException {
+    final ImageDiskCache cache = new ImageDiskCache(directory.toString(), DataSize.ofKilobytes(1));
+    cache.put("2426_logo.jpg", new byte[] { 1, 2, 3 });
+    image = cache.open("2426_logo.jpg").orElseThrow();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldServeOpenedImageTest() {
+    when(service.searchArtistLogoReactive("2426")).thenReturn(Mono.just(image));
+
+    final DeferredResult<ResponseEntity<Resource>> result = controller.searchArtistLogo("2426");
+
+    final ResponseEntity<Resource> ent = (ResponseEntity<Resource>) result.getResult();
+    assertEquals(HttpStatus.OK.value(), ent.getStatusCode().value());
+    assertEquals(image, ent.getBody());
+    assertTrue(image.exists());
+  }
+
+  @Test
+  public void shouldCloseImageOpenedAfterRequestFailedTest() throws InterruptedException {
+    when(service.searchArtistLogoReactive("2426"))
+      .thenReturn(Mono.just(image).delayElement(Duration.ofMillis(50)));
+
+    final DeferredResult<ResponseEntity<Resource>> result = controller.searchArtistLogo("2426");
+    // as on a request timeout
+    result.setErrorResult(new AsyncRequestTimeoutException());
+
+    for (int i = 0; i < 100 && image.exists(); i++) {
+      Thread.sleep(10);
+    }
+
+    assertFalse(image.exists());
+    assertTrue(result.getResult() instanceof AsyncRequestTimeoutException);
+  }
+}
@@ -0,0 +1,30 @@
+package com.fs.fsapi.metallum;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fs.fsapi.exceptions.response.ErrorResponse;
+
+public class MetallumErrorResponsesTest {
+
+  @Test
+  public void shouldDescribeUpstreamNotFoundAsNotFoundTest() {
+    ErrorResponse actual = MetallumErrorResponses.of(
+      WebClientResponseException.create(404, "Not Found", null, null, null)
+    );
+
+    assertEquals(HttpStatus.NOT_FOUND.value(), actual.getCode());
+  }
+
+  @Test
+  public void shouldDescribeOtherUpstreamClientErrorsAsBadGatewayTest() {
+    ErrorResponse actual = MetallumErrorResponses.of(
+      WebClientResponseException.create(400, "Bad Request", null, null, null)
+    );
+
+    assertEquals(HttpStatus.BAD_GATEWAY.value(), actual.getCode());
+  }
+}
@@ -13,9 +13,20 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 
+import com.fs.fsapi.config.CustomSchedulerConfig;
 import com.fs.fsapi.config.CustomWebClientConfig;
 import com.fs.fsapi.helpers.MetallumFileHelper;
 import com.fs.fsapi.metallum.cache.ArtistTitleSearchCache;
+import com.fs.fsapi.metallum.cache.CanonicalSearchKeys;
+import com.fs.fsapi.metallum.cache.ImageDiskCache;
+import com.fs.fsapi.metallum.cache.LyricsCache;
+import com.fs.fsapi.metallum.cache.MetallumCacheMetrics;
+import com.fs.fsapi.metallum.cache.PersistentMetallumCache;
+import com.fs.fsapi.metallum.cache.TitlePageCache;
+import com.fs.fsapi.metallum.client.InFlightRequests;
+import com.fs.fsapi.metallum.client.MetallumCallPolicy;
+import com.fs.fsapi.metallum.client.MetallumCircuitBreaker;
+import com.fs.fsapi.metallum.client.MetallumRateLimiter;
 import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
 import com.fs.fsapi.metallum.parser.MetallumParser;
 
@@ -28,8 +39,19 @@ import reactor.test.StepVerifier;
 
 @SpringBootTest(classes = {
   CustomWebClientConfig.class,
+  CustomSchedulerConfig.class,
   MetallumParser.class,
   ArtistTitleSearchCache.class,
+  CanonicalSearchKeys.class,
+  InFlightRequests.class,
+  MetallumRateLimiter.class,
+  MetallumCircuitBreaker.class,
+  MetallumCallPolicy.class,
+  PersistentMetallumCache.class,
+  ImageDiskCache.class,
+  TitlePageCache.class,
+  LyricsCache.class,
+  MetallumCacheMetrics.class,
   MetallumService.class,
 })
 public class MetallumServiceIntegrationTest {
@@ -1,16 +1,28 @@
 package com.fs.fsapi.metallum;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.stream.IntStream;
 
@@ -20,17 +32,35 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
 import com.fs.fsapi.helpers.MetallumFileHelper;
 import com.fs.fsapi.metallum.cache.ArtistTitleSearchCache;
+import com.fs.fsapi.metallum.cache.CacheLookup;
+import com.fs.fsapi.metallum.cache.CanonicalSearchKeys;
+import com.fs.fsapi.metallum.cache.ImageDiskCache;
+import com.fs.fsapi.metallum.cache.LyricsCache;
+import com.fs.fsapi.metallum.cache.MetallumCacheType;
+import com.fs.fsapi.metallum.cache.MetallumCacheMetrics;
+import com.fs.fsapi.metallum.cache.PersistentMetallumCache;
+import com.fs.fsapi.metallum.cache.StoredImage;
+import com.fs.fsapi.metallum.cache.TitlePageCache;
+import com.fs.fsapi.metallum.client.InFlightRequests;
+import com.fs.fsapi.metallum.client.MetallumCallPolicy;
+import com.fs.fsapi.metallum.client.MetallumCircuitBreaker;
+import com.fs.fsapi.metallum.client.MetallumRateLimiter;
 import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
 import com.fs.fsapi.metallum.parser.MetallumParser;
+import com.fs.fsapi.metallum.parser.ReleaseDetailsResult;
+import com.fs.fsapi.metallum.parser.TitlePageResult;
 import com.fs.fsapi.metallum.response.ArtistTitleSearchResponse;
 
 import okhttp3.mockwebserver.MockResponse;
@@ -38,6 +68,7 @@ import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
 import okio.Buffer;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 // is StepVerifier necessary? learn to use better
@@ -55,6 +86,16 @@ public class MetallumServiceUnitTest {
   @Mock
   private ArtistTitleSearchCache cache;
 
+  @Mock
+  private PersistentMetallumCache persistentCache;
+
+  @TempDir
+  private Path imageDirectory;
+
+  private ImageDiskCache imageCache;
+
+  private TitlePageCache titlePageCache;
+
   private MetallumService service;
 
   @BeforeEach
@@ -64,7 +105,34 @@ public class MetallumServiceUnitTest {
 			.baseUrl(mockWebServer.url("/").toString())
 			.build();
 
-    service = new MetallumService(webClient, parser, cache);
+    imageCache = new ImageDiskCache(imageDirectory.toString(), DataSize.ofMegabytes(1));
+    titlePageCache = new TitlePageCache(100, Duration.ofHours(1), Duration.ofHours(1), DataSize.ofBytes(0));
+
+    service = new MetallumService(
+      webClient,
+      parser,
+      cache,
+      new CanonicalSearchKeys(false),
+      new InFlightRequests(),
+      persistentCache,
+      imageCache,
+      titlePageCache,
+      new LyricsCache(100, Duration.ofHours(1), Duration.ofHours(1), DataSize.ofBytes(0)),
+      new MetallumCacheMetrics(List.of()),
+      new MetallumCallPolicy(
+        new MetallumCircuitBreaker(5, Duration.ofSeconds(30)),
+        new MetallumRateLimiter(1000, 1000, 0, Duration.ofSeconds(1)),
+        Duration.ofSeconds(5),
+        Duration.ofSeconds(5),
+        Duration.ofSeconds(5),
+        Duration.ofSeconds(5),
+        Duration.ofSeconds(5),
+        0,
+        Duration.ofMillis(10),
+        0.5
+      ),
+      Schedulers.boundedElastic()
+    );
   }
 
   @AfterEach
@@ -83,8 +151,14 @@ public class MetallumServiceUnitTest {
     @BeforeEach
     public void setUpCache() {
       // mock cache to always not find
-      when(cache.get(anyString(), anyString()))
+      when(cache.lookup(anyString(), anyString()))
         .thenReturn(Optional.empty());
+
+      // mock cache to load on every miss
+      lenient().when(cache.computeIfAbsent(anyString(), anyString(), any()))
+        .thenAnswer(invocation -> invocation
+          .<BiFunction<String, String, ArtistTitleSearchResult>>getArgument(2)
+          .apply(invocation.getArgument(0), invocation.getArgument(1)));
     }
 
     @Test
@@ -139,6 +213,180 @@ public class MetallumServiceUnitTest {
         .expectNextMatches(searchResultPredicateFactory(expectedResult))
         .verifyComplete();
     } 
+
+    @Test
+    public void shouldReturnCachedSearchResultWithoutRequestTest() {
+      final String artist = "Adramelech";
+      final String title = "Psychostasia";
+
+      when(cache.lookup(artist, title))
+        .thenReturn(Optional.of(new CacheLookup<>(expectedResult, false)));
+
+      final ArtistTitleSearchResult actual = service.searchByArtistAndTitle(
+        artist, title
+      );
+
+      assertEquals(expectedResult, actual);
+      assertEquals(0, mockWebServer.getRequestCount());
+    }
+
+    @Test
+    public void shouldReturnStaleSearchResultAndRefreshItTest() throws IOException, InterruptedException {
+      final String artist = "Adramelech";
+      final String title = "Psychostasia";
+
+      when(cache.lookup(artist, title))
+        .thenReturn(Optional.of(new CacheLookup<>(expectedResult, true)));
+      when(parser.getSearchResult(
+          any(ArtistTitleSearchResponse.class),
+          anyString(),
+          anyString()))
+        .thenReturn(expectedResult);
+
+      mockWebServer.enqueue(new MockResponse()
+        .setResponseCode(200)
+        .setHeader("Content-Type", "application/json")
+        .setBody(MetallumFileHelper.readSearchResponseFile()));
+
+      final ArtistTitleSearchResult actual = service.searchByArtistAndTitle(
+        artist, title
+      );
+
+      assertEquals(expectedResult, actual);
+      assertNotNull(mockWebServer.takeRequest(5, TimeUnit.SECONDS));
+      verify(cache, timeout(5000)).put(artist, title, expectedResult);
+    }
+
+    @Test
+    public void shouldRefreshStaleSearchResultFromMetallumInsteadOfPersistentCacheTest() throws IOException, InterruptedException {
+      final String artist = "Adramelech";
+      final String title = "Psychostasia";
+
+      when(cache.lookup(artist, title))
+        .thenReturn(Optional.of(new CacheLookup<>(expectedResult, true)));
+      when(persistentCache.isEnabled()).thenReturn(true);
+      lenient().when(persistentCache.get(any(), anyString(), any()))
+        .thenReturn(Optional.of(expectedResult));
+      when(parser.getSearchResult(
+          any(ArtistTitleSearchResponse.class),
+          anyString(),
+          anyString()))
+        .thenReturn(expectedResult);
+
+      mockWebServer.enqueue(new MockResponse()
+        .setResponseCode(200)
+        .setHeader("Content-Type", "application/json")
+        .setBody(MetallumFileHelper.readSearchResponseFile()));
+
+      final ArtistTitleSearchResult actual = service.searchByArtistAndTitle(
+        artist, title
+      );
+
+      assertEquals(expectedResult, actual);
+      assertNotNull(mockWebServer.takeRequest(5, TimeUnit.SECONDS));
+      verify(persistentCache, timeout(5000))
+        .put(eq(MetallumCacheType.SEARCH), anyString(), eq(expectedResult));
+      verify(persistentCache, never()).get(any(), anyString(), any());
+    }
+
+    @Test
+    public void shouldReturnStaleSearchResultWhenRefreshFailsTest() throws InterruptedException {
+      final String artist = "Adramelech";
+      final String title = "Psychostasia";
+
+      when(cache.lookup(artist, title))
+        .thenReturn(Optional.of(new CacheLookup<>(expectedResult, true)));
+
+      mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+      final ArtistTitleSearchResult actual = service.searchByArtistAndTitle(
+        artist, title
+      );
+
+      assertEquals(expectedResult, actual);
+      assertNotNull(mockWebServer.takeRequest(5, TimeUnit.SECONDS));
+      verify(cache, after(500).never()).put(anyString(), anyString(), any());
+    }
+
+    @Test
+    public void shouldThrowCachedNotFoundWithoutRequestTest() {
+      final String artist = "Adramelek";
+      final String title = "Psychostasia";
+      final String message = "No results for '" + title + "' by '" + artist + "'";
+
+      when(cache.getNotFound(artist, title))
+        .thenReturn(Optional.of(message));
+
+      final CustomDataNotFoundException e = assertThrows(
+        CustomDataNotFoundException.class,
+        () -> service.searchByArtistAndTitle(artist, title)
+      );
+
+      assertEquals(message, e.getMessage());
+      assertEquals(0, mockWebServer.getRequestCount());
+    }
+
+    @Test
+    public void shouldCacheSearchWithoutResultsTest() throws IOException {
+      final String artist = "Adramelek";
+      final String title = "Psychostasia";
+      final String message = "No results for '" + title + "' by '" + artist + "'";
+
+      when(parser.getSearchResult(
+          any(ArtistTitleSearchResponse.class),
+          anyString(),
+          anyString()))
+        .thenThrow(new CustomDataNotFoundException(message));
+
+      mockWebServer.enqueue(new MockResponse()
+        .setResponseCode(200)
+        .setHeader("Content-Type", "application/json")
+        .setBody(MetallumFileHelper.readSearchResponseFile()));
+
+      assertThrows(
+        CustomDataNotFoundException.class,
+        () -> service.searchByArtistAndTitle(artist, title)
+      );
+
+      verify(cache).putNotFound(artist, title);
+    }
+
+    @Test
+    public void shouldEmitSearchResultReactivelyTest() throws IOException {
+      when(parser.getSearchResult(
+          any(ArtistTitleSearchResponse.class),
+          anyString(),
+          anyString()))
+        .thenReturn(expectedResult);
+
+      mockWebServer.enqueue(new MockResponse()
+        .setResponseCode(200)
+        .setHeader("Content-Type", "application/json")
+        .setBody(MetallumFileHelper.readSearchResponseFile()));
+
+      StepVerifier.create(service.searchByArtistAndTitleReactive("Adramelech", "Psychostasia"))
+        .expectNextMatches(searchResultPredicateFactory(expectedResult))
+        .verifyComplete();
+
+      verify(cache).put("Adramelech", "Psychostasia", expectedResult);
+    }
+
+    @Test
+    public void shouldEmitCachedNotFoundReactivelyWithoutRequestTest() {
+      final String artist = "Adramelek";
+      final String title = "Psychostasia";
+      final String message = "No results for '" + title + "' by '" + artist + "'";
+
+      when(cache.getNotFound(artist, title))
+        .thenReturn(Optional.of(message));
+
+      StepVerifier.create(service.searchByArtistAndTitleReactive(artist, title))
+        .expectErrorMatches(e -> e instanceof CustomDataNotFoundException
+          && e.getMessage().equals(message))
+        .verify();
+
+      assertEquals(0, mockWebServer.getRequestCount());
+    }
   }
 
   public Predicate<ArtistTitleSearchResult> searchResultPredicateFactory(ArtistTitleSearchResult expected) {
@@ -179,7 +427,10 @@ public class MetallumServiceUnitTest {
       // Exercise your application code, which should make those HTTP requests.
       // Responses are returned in the same order that they are enqueued.
       final String artistId = MetallumFileHelper.LOGO_ARTIST_ID;
-      final byte[] actual = service.searchArtistLogo(artistId);
+      final byte[] actual;
+      try (StoredImage opened = service.searchArtistLogo(artistId)) {
+        actual = opened.getInputStream().readAllBytes();
+      }
 
       // Optional: confirm that your app made the HTTP requests you were expecting.
       RecordedRequest req = mockWebServer.takeRequest();
@@ -192,6 +443,29 @@ public class MetallumServiceUnitTest {
         .expectNextMatches(image -> (image.length > 0) && (image.length == mockBody.length))
         .verifyComplete();
     } 
+
+    @Test
+    public void shouldReturnStoredImageWithoutRequestTest() throws IOException {
+      final byte[] image = new byte[] { 1, 2, 3 };
+      imageCache.put("2426_logo.jpg", image);
+
+      try (StoredImage actual = service.searchArtistLogo(MetallumFileHelper.LOGO_ARTIST_ID)) {
+        assertEquals(0, mockWebServer.getRequestCount());
+        assertArrayEquals(image, actual.getInputStream().readAllBytes());
+      }
+    }
+
+    @Test
+    public void shouldEmitStoredImageReactivelyWithoutRequestTest() throws IOException {
+      final byte[] image = new byte[] { 1, 2, 3 };
+      imageCache.put("2426_logo.jpg", image);
+
+      StepVerifier.create(service.searchArtistLogoReactive(MetallumFileHelper.LOGO_ARTIST_ID))
+        .expectNextMatches(stored -> stored.getFilename().equals("2426_logo.jpg"))
+        .verifyComplete();
+
+      assertEquals(0, mockWebServer.getRequestCount());
+    }
   }
 
   @Nested
@@ -216,7 +490,10 @@ public class MetallumServiceUnitTest {
       // Exercise your application code, which should make those HTTP requests.
       // Responses are returned in the same order that they are enqueued.
       final String titleId = MetallumFileHelper.TITLE_COVER_ID;
-      final byte[] actual = service.searchTitleCover(titleId);
+      final byte[] actual;
+      try (StoredImage opened = service.searchTitleCover(titleId)) {
+        actual = opened.getInputStream().readAllBytes();
+      }
 
       // Optional: confirm that your app made the HTTP requests you were expecting.
       RecordedRequest req = mockWebServer.takeRequest();
@@ -229,6 +506,17 @@ public class MetallumServiceUnitTest {
         .expectNextMatches(image -> (image.length > 0) && (image.length == mockBody.length))
         .verifyComplete();
     } 
+
+    @Test
+    public void shouldReturnStoredImageWithoutRequestTest() throws IOException {
+      final byte[] image = new byte[] { 1, 2, 3 };
+      imageCache.put("6516.jpg", image);
+
+      try (StoredImage actual = service.searchTitleCover(MetallumFileHelper.TITLE_COVER_ID)) {
+        assertEquals(0, mockWebServer.getRequestCount());
+        assertArrayEquals(image, actual.getInputStream().readAllBytes());
+      }
+    }
   }
 
   @Nested
@@ -277,5 +565,20 @@ public class MetallumServiceUnitTest {
       final String expected = "https://www.metal-archives.com/images/2/4/2/6/24261.jpg";
       assertEquals(expected, service.createTitleCoverUrl(titleId));
     }
+
+    @Test
+    public void shouldUseCoverLinkedFromCachedTitlePageTest() {
+      final String titleId = "19654";
+      titlePageCache.put(titleId, new TitlePageResult(
+        new ReleaseDetailsResult(
+          null, null, null, null, null, null, null,
+          "https://www.metal-archives.com/images/1/9/6/5/19654.png?4100"
+        ),
+        List.of()
+      ));
+
+      final String expected = "https://www.metal-archives.com/images/1/9/6/5/19654.png";
+      assertEquals(expected, service.createTitleCoverUrl(titleId));
+    }
   }
 }
@@ -2,7 +2,10 @@ package com.fs.fsapi.metallum.cache;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -10,10 +13,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
 import com.fs.fsapi.helpers.MetallumFileHelper;
 import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
 
-@SpringBootTest(classes = { ArtistTitleSearchCache.class })
+@SpringBootTest(classes = { ArtistTitleSearchCache.class, CanonicalSearchKeys.class })
 public class ArtistTitleSearchCacheTest {
   
   @Autowired
@@ -47,6 +51,108 @@ public class ArtistTitleSearchCacheTest {
     assertEquals(expected, actual);
   }
 
+  @Test
+  public void shouldContainMappingForEquivalentKeysTest() {
+    cache.put(key1, key2, expected);
+
+    assertEquals(expected, cache.get(" " + key1.toUpperCase() + " ", key2.toLowerCase()).get());
+  }
+
+  @Test
+  public void shouldNotContainNotFoundMappingInitiallyTest() {
+    assertTrue(cache.getNotFound(key1, key2).isEmpty());
+  }
+
+  @Test
+  public void shouldContainNotFoundMappingAfterPuttingNotFoundTest() {
+    cache.putNotFound(key1, key2);
+
+    assertEquals(
+      "No results for '" + key2 + "' by '" + key1 + "'",
+      cache.getNotFound(key1, key2).get()
+    );
+    assertTrue(cache.get(key1, key2).isEmpty());
+  }
+
+  @Test
+  public void shouldNameSearchedSpellingInNotFoundMessageTest() {
+    cache.putNotFound(key1, key2);
+
+    final String artist = " " + key1.toUpperCase() + " ";
+    final String title = key2.toLowerCase();
+
+    assertEquals(
+      "No results for '" + title + "' by '" + artist + "'",
+      cache.getNotFound(artist, title).get()
+    );
+
+    final CustomDataNotFoundException e = assertThrows(
+      CustomDataNotFoundException.class,
+      () -> cache.computeIfAbsent(artist, title, (a, t) -> expected)
+    );
+    assertEquals("No results for '" + title + "' by '" + artist + "'", e.getMessage());
+  }
+
+  @Test
+  public void shouldReplaceNotFoundMappingWhenPuttingResultTest() {
+    cache.putNotFound(key1, key2);
+
+    cache.put(key1, key2, expected);
+
+    assertTrue(cache.getNotFound(key1, key2).isEmpty());
+    assertEquals(expected, cache.get(key1, key2).get());
+  }
+
+  @Test
+  public void shouldGetAllPresentMappingsTest() {
+    final DoubleKey<String, String> present = new DoubleKey<>(key1, key2);
+    final DoubleKey<String, String> missing = new DoubleKey<>(key1, "other");
+
+    cache.put(key1, key2, expected);
+
+    assertEquals(Map.of(present, expected), cache.getAll(List.of(present, missing)));
+  }
+
+  @Test
+  public void shouldPutComputedMappingTest() {
+    assertEquals(expected, cache.computeIfAbsent(key1, key2, (artist, title) -> expected));
+    assertEquals(expected, cache.get(key1, key2).get());
+  }
+
+  @Test
+  public void shouldThrowWhenComputingNotFoundMappingTest() {
+    cache.putNotFound(key1, key2);
+
+    assertThrows(
+      CustomDataNotFoundException.class,
+      () -> cache.computeIfAbsent(key1, key2, (artist, title) -> expected)
+    );
+  }
+
+  @Test
+  public void shouldNotContainMappingAfterInvalidatingTest() {
+    cache.put(key1, key2, expected);
+    cache.put(key1, "other", expected);
+
+    cache.invalidate(key1, key2);
+
+    assertTrue(cache.get(key1, key2).isEmpty());
+    assertTrue(cache.get(key1, "other").isPresent());
+  }
+
+  @Test
+  public void shouldNotContainMappingsOfArtistAfterInvalidatingArtistTest() {
+    cache.put(key1, key2, expected);
+    cache.put(key1, "other", expected);
+    cache.put("other", key2, expected);
+
+    cache.invalidateAll(key1);
+
+    assertTrue(cache.get(key1, key2).isEmpty());
+    assertTrue(cache.get(key1, "other").isEmpty());
+    assertTrue(cache.get("other", key2).isPresent());
+  }
+
   @Test
   public void shouldNotContainMappingAfterClearingTest() {
     cache.put(key1, key2, expected);
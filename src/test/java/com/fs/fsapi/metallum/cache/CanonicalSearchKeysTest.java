@@ -0,0 +1,50 @@
+package com.fs.fsapi.metallum.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class CanonicalSearchKeysTest {
+
+  private final CanonicalSearchKeys keys = new CanonicalSearchKeys(false);
+
+  private final CanonicalSearchKeys strippingKeys = new CanonicalSearchKeys(true);
+
+  @Test
+  public void shouldFoldCaseTest() {
+    assertEquals("iron maiden", keys.canonicalize("IRON Maiden"));
+  }
+
+  @Test
+  public void shouldCollapseWhitespaceTest() {
+    assertEquals("iron maiden", keys.canonicalize("  iron \t maiden "));
+  }
+
+  @Test
+  public void shouldNormalizeComposedAndDecomposedFormsTest() {
+    final String composed = "Mot\u00f6rhead";
+    final String decomposed = "Moto\u0308rhead";
+
+    assertEquals(keys.canonicalize(composed), keys.canonicalize(decomposed));
+  }
+
+  @Test
+  public void shouldKeepPunctuationByDefaultTest() {
+    assertNotEquals(keys.canonicalize("AC/DC"), keys.canonicalize("ACDC"));
+  }
+
+  @Test
+  public void shouldStripPunctuationWhenEnabledTest() {
+    assertEquals("acdc", strippingKeys.canonicalize("AC/DC"));
+    assertEquals("guns n roses", strippingKeys.canonicalize("Guns N' Roses"));
+  }
+
+  @Test
+  public void shouldCreateSameKeyForEquivalentSearchesTest() {
+    assertEquals(
+      keys.key("Iron Maiden", "Powerslave"),
+      keys.key("iron maiden ", "POWERSLAVE")
+    );
+  }
+}
@@ -0,0 +1,450 @@
+package com.fs.fsapi.metallum.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class ExpiringLruCacheTest {
+
+  private final Duration timeToLive = Duration.ofMinutes(10);
+
+  private final AtomicLong time = new AtomicLong();
+
+  private ExpiringLruCache<String, String> cache;
+
+  @BeforeEach
+  public void create() {
+    cache = new ExpiringLruCache<>(2, timeToLive, time::get);
+  }
+
+  @Test
+  public void shouldNotAllowNonPositiveMaximumSizeTest() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new ExpiringLruCache<>(0, timeToLive)
+    );
+  }
+
+  @Test
+  public void shouldNotAllowNonPositiveTimeToLiveTest() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new ExpiringLruCache<>(1, Duration.ZERO)
+    );
+  }
+
+  @Nested
+  @DisplayName("expiration")
+  public class Expiration {
+
+    @Test
+    public void shouldReturnValueBeforeTimeToLiveHasPassedTest() {
+      cache.put("a", "1");
+
+      time.addAndGet(timeToLive.toNanos() - 1);
+
+      assertEquals("1", cache.get("a").get());
+    }
+
+    @Test
+    public void shouldNotReturnValueAfterTimeToLiveHasPassedTest() {
+      cache.put("a", "1");
+
+      time.addAndGet(timeToLive.toNanos());
+
+      assertTrue(cache.get("a").isEmpty());
+      assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldRenewTimeToLiveWhenPuttingAgainTest() {
+      cache.put("a", "1");
+      time.addAndGet(timeToLive.toNanos() - 1);
+
+      cache.put("a", "2");
+      time.addAndGet(timeToLive.toNanos() - 1);
+
+      assertEquals("2", cache.get("a").get());
+    }
+  }
+
+  @Nested
+  @DisplayName("eviction")
+  public class Eviction {
+
+    @Test
+    public void shouldNotExceedMaximumSizeTest() {
+      cache.put("a", "1");
+      cache.put("b", "2");
+      cache.put("c", "3");
+
+      assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntryTest() {
+      cache.put("a", "1");
+      cache.put("b", "2");
+
+      // "b" becomes the least recently used entry
+      cache.get("a");
+      cache.put("c", "3");
+
+      assertTrue(cache.get("a").isPresent());
+      assertTrue(cache.get("b").isEmpty());
+      assertTrue(cache.get("c").isPresent());
+    }
+  }
+
+  @Nested
+  @DisplayName("computeIfAbsent")
+  public class ComputeIfAbsent {
+
+    @Test
+    public void shouldReturnPresentValueWithoutLoadingTest() {
+      cache.put("a", "1");
+
+      assertEquals("1", cache.computeIfAbsent("a", key -> {
+        throw new AssertionError("Expected no load");
+      }));
+    }
+
+    @Test
+    public void shouldPutLoadedValueTest() {
+      assertEquals("1", cache.computeIfAbsent("a", key -> "1"));
+      assertEquals("1", cache.get("a").get());
+    }
+
+    @Test
+    public void shouldLoadOnceForConcurrentCallsTest() throws Exception {
+      final AtomicInteger loads = new AtomicInteger();
+      final CountDownLatch loading = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+
+      final ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+        final Future<String> first = executor.submit(() -> cache.computeIfAbsent("a", key -> {
+          loads.incrementAndGet();
+          loading.countDown();
+          awaitUninterruptibly(release);
+          return "1";
+        }));
+
+        loading.await();
+        final Future<String> second = executor.submit(() -> cache.computeIfAbsent("a", key -> {
+          loads.incrementAndGet();
+          return "2";
+        }));
+
+        release.countDown();
+
+        assertEquals("1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("1", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    @Test
+    public void shouldNotPutWhenLoadFailsTest() {
+      assertThrows(
+        IllegalStateException.class,
+        () -> cache.computeIfAbsent("a", key -> {
+          throw new IllegalStateException();
+        })
+      );
+
+      assertTrue(cache.get("a").isEmpty());
+    }
+
+    private void awaitUninterruptibly(CountDownLatch latch) {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Test
+  public void shouldNotExceedMaximumSizeWhenSegmentedTest() {
+    final ExpiringLruCache<String, String> large = new ExpiringLruCache<>(1000, timeToLive, time::get);
+
+    for (int i = 0; i < 5000; i++) {
+      large.put(String.valueOf(i), "value");
+    }
+
+    assertTrue(large.size() <= 1000);
+    assertTrue(large.get("4999").isPresent());
+  }
+
+  @Nested
+  @DisplayName("stale grace period")
+  public class StaleGracePeriod {
+
+    private final Duration gracePeriod = Duration.ofMinutes(5);
+
+    private ExpiringLruCache<String, String> staleCache;
+
+    @BeforeEach
+    public void create() {
+      staleCache = new ExpiringLruCache<>(2, timeToLive, gracePeriod, value -> 0, time::get);
+    }
+
+    @Test
+    public void shouldLookUpFreshValueBeforeTimeToLiveHasPassedTest() {
+      staleCache.put("a", "1");
+
+      assertEquals(new CacheLookup<>("1", false), staleCache.lookup("a").get());
+    }
+
+    @Test
+    public void shouldLookUpStaleValueWithinGracePeriodTest() {
+      staleCache.put("a", "1");
+
+      time.addAndGet(timeToLive.toNanos());
+
+      assertEquals(new CacheLookup<>("1", true), staleCache.lookup("a").get());
+      assertTrue(staleCache.get("a").isEmpty());
+    }
+
+    @Test
+    public void shouldNotLookUpValueAfterGracePeriodTest() {
+      staleCache.put("a", "1");
+
+      time.addAndGet(timeToLive.toNanos() + gracePeriod.toNanos());
+
+      assertTrue(staleCache.lookup("a").isEmpty());
+      assertEquals(0, staleCache.size());
+    }
+  }
+
+  @Nested
+  @DisplayName("statistics")
+  public class Statistics {
+
+    @Test
+    public void shouldCountHitsAndMissesTest() {
+      cache.put("a", "1");
+
+      cache.get("a");
+      cache.get("a");
+      cache.get("b");
+
+      assertEquals(2, cache.getStats().getHitCount());
+      assertEquals(1, cache.getStats().getMissCount());
+    }
+
+    @Test
+    public void shouldNotCountQuietLookupsTest() {
+      cache.put("a", "1");
+
+      cache.getQuietly("a");
+      cache.getQuietly("b");
+
+      assertEquals(0, cache.getStats().getHitCount());
+      assertEquals(0, cache.getStats().getMissCount());
+    }
+
+    @Test
+    public void shouldCountEvictionsAndExpirationsTest() {
+      cache.put("a", "1");
+      cache.put("b", "2");
+      cache.put("c", "3");
+
+      time.addAndGet(timeToLive.toNanos());
+      cache.get("c");
+
+      assertEquals(2, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void shouldTrackEstimatedBytesTest() {
+      final ExpiringLruCache<String, String> weighed = new ExpiringLruCache<>(
+        2, timeToLive, value -> value.length(), time::get
+      );
+
+      weighed.put("a", "1");
+      weighed.put("b", "22");
+      assertEquals(3, weighed.getEstimatedBytes());
+
+      weighed.put("a", "333");
+      assertEquals(5, weighed.getEstimatedBytes());
+
+      weighed.put("c", "4444");
+      assertEquals(7, weighed.getEstimatedBytes());
+
+      weighed.invalidate("c");
+      assertEquals(3, weighed.getEstimatedBytes());
+    }
+  }
+
+  @Nested
+  @DisplayName("off-heap tier")
+  public class OffHeapTier {
+
+    private final OffHeapCodec<String> codec = new OffHeapCodec<>() {
+
+      @Override
+      public void write(String value, DataOutput out) throws IOException {
+        out.writeUTF(value);
+      }
+
+      @Override
+      public String read(DataInput in) throws IOException {
+        return in.readUTF();
+      }
+    };
+
+    @BeforeEach
+    public void create() {
+      cache = new ExpiringLruCache<>(1, timeToLive, time::get);
+      cache.enableOffHeapTier(OffHeapStore.PAGE_SIZE, codec);
+    }
+
+    @Test
+    public void shouldMoveEvictedValueBackToHeapTest() {
+      cache.put("a", "1");
+      cache.put("b", "2");
+
+      assertTrue(cache.getOffHeapBytes() > 0);
+      assertEquals("1", cache.get("a").get());
+      assertEquals("2", cache.get("b").get());
+      assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void shouldNotReturnEvictedValueAfterInvalidatingTest() {
+      cache.put("a", "1");
+      cache.put("b", "2");
+
+      cache.invalidate("a");
+
+      assertTrue(cache.get("a").isEmpty());
+      assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void shouldNotReturnEvictedValueAfterInvalidatingMatchingTest() {
+      cache.put("a", "1");
+      cache.put("b", "2");
+
+      cache.invalidateIf(key -> key.equals("a"));
+
+      assertTrue(cache.get("a").isEmpty());
+      assertEquals("2", cache.get("b").get());
+    }
+
+    @Test
+    public void shouldReturnValuePutAfterEvictionTest() {
+      cache.put("a", "1");
+      cache.put("b", "2");
+
+      cache.put("a", "3");
+
+      assertEquals("3", cache.get("a").get());
+      assertEquals("2", cache.get("b").get());
+      assertEquals("3", cache.get("a").get());
+      assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void shouldNotResurrectValuesWhenMovedConcurrentlyTest() throws Exception {
+      final ExpiringLruCache<String, String> segmented = new ExpiringLruCache<>(
+        128, timeToLive, time::get
+      );
+      segmented.enableOffHeapTier(OffHeapStore.PAGE_SIZE, codec);
+
+      final int keys = 512;
+      final AtomicBoolean writing = new AtomicBoolean(true);
+      final ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        // readers keep moving entries between the tiers
+        final List<Future<?>> readers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+          final int offset = t;
+          readers.add(executor.submit(() -> {
+            for (int i = offset; writing.get(); i++) {
+              segmented.get(String.valueOf(i % keys));
+            }
+          }));
+        }
+
+        final Future<?> writer = executor.submit(() -> {
+          for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < keys; i++) {
+              segmented.put(String.valueOf(i), "value-" + round);
+            }
+
+            for (int i = 0; i < keys; i += 2) {
+              segmented.invalidate(String.valueOf(i));
+            }
+          }
+        });
+
+        writer.get(30, TimeUnit.SECONDS);
+        writing.set(false);
+        for (Future<?> reader : readers) {
+          reader.get(30, TimeUnit.SECONDS);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+
+      for (int i = 0; i < keys; i++) {
+        final Optional<String> value = segmented.get(String.valueOf(i));
+        if (i % 2 == 0) {
+          assertTrue(value.isEmpty());
+        } else {
+          assertEquals(Optional.of("value-19"), value);
+        }
+      }
+
+      assertEquals(keys / 2, segmented.size());
+    }
+  }
+
+  @Test
+  public void shouldNotContainMappingsMatchingPredicateAfterInvalidatingTest() {
+    cache.put("a", "1");
+    cache.put("b", "2");
+
+    cache.invalidateIf(key -> key.equals("a"));
+
+    assertTrue(cache.get("a").isEmpty());
+    assertTrue(cache.get("b").isPresent());
+  }
+
+  @Test
+  public void shouldNotContainMappingAfterInvalidatingTest() {
+    cache.put("a", "1");
+    cache.put("b", "2");
+
+    cache.invalidate("a");
+
+    assertTrue(cache.get("a").isEmpty());
+    assertTrue(cache.get("b").isPresent());
+  }
+}
@@ -0,0 +1,207 @@
+package com.fs.fsapi.metallum.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.unit.DataSize;
+
+import reactor.core.publisher.Flux;
+
+public class ImageDiskCacheTest {
+
+  @TempDir
+  private Path directory;
+
+  private ImageDiskCache cache;
+
+  private final byte[] image = new byte[] { 1, 2, 3, 4 };
+
+  @BeforeEach
+  public void create() throws IOException {
+    cache = new ImageDiskCache(directory.toString(), DataSize.ofBytes(10));
+  }
+
+  @Test
+  public void shouldNotContainImageInitiallyTest() {
+    assertTrue(cache.get("6516.jpg").isEmpty());
+  }
+
+  @Test
+  public void shouldStoreImageToFileTest() throws IOException {
+    cache.put("6516.jpg", image);
+
+    final Optional<Path> opt = cache.get("6516.jpg");
+    assertTrue(opt.isPresent());
+
+    assertEquals(directory.resolve("6516.jpg"), opt.get());
+    assertArrayEquals(image, Files.readAllBytes(opt.get()));
+    assertEquals(image.length, cache.getTotalBytes());
+  }
+
+  @Test
+  public void shouldStoreStreamedImageToFileTest() throws IOException {
+    final Flux<DataBuffer> chunks = Flux.just(
+      DefaultDataBufferFactory.sharedInstance.wrap(new byte[] { 1, 2 }),
+      DefaultDataBufferFactory.sharedInstance.wrap(new byte[] { 3, 4 })
+    );
+
+    final Path file = cache.put("6516.jpg", chunks).block();
+
+    assertEquals(directory.resolve("6516.jpg"), file);
+    assertArrayEquals(image, Files.readAllBytes(file));
+    assertEquals(image.length, cache.getTotalBytes());
+  }
+
+  @Test
+  public void shouldNotStoreFailedStreamTest() throws IOException {
+    final Flux<DataBuffer> chunks = Flux.concat(
+      Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(new byte[] { 1, 2 })),
+      Flux.error(new IllegalStateException("Connection reset"))
+    );
+
+    assertThrows(IllegalStateException.class, () -> cache.put("6516.jpg", chunks).block());
+
+    assertTrue(cache.get("6516.jpg").isEmpty());
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedImageWhenOverBudgetTest() {
+    cache.put("1.jpg", image);
+    cache.put("2.jpg", image);
+
+    // "2.jpg" becomes the least recently used image
+    cache.get("1.jpg");
+    cache.put("3.jpg", image);
+
+    assertTrue(cache.get("1.jpg").isPresent());
+    assertTrue(cache.get("2.jpg").isEmpty());
+    assertTrue(cache.get("3.jpg").isPresent());
+
+    assertFalse(Files.exists(directory.resolve("2.jpg")));
+    assertEquals(2 * image.length, cache.getTotalBytes());
+  }
+
+  @Test
+  public void shouldReadOpenedImageAfterEvictionTest() throws IOException {
+    cache.put("1.jpg", image);
+    final StoredImage opened = cache.open("1.jpg").orElseThrow();
+
+    cache.put("2.jpg", image);
+    cache.put("3.jpg", image);
+
+    assertTrue(cache.get("1.jpg").isEmpty());
+    assertFalse(Files.exists(directory.resolve("1.jpg")));
+    assertEquals(image.length, opened.contentLength());
+    try (InputStream content = opened.getInputStream()) {
+      assertArrayEquals(image, content.readAllBytes());
+    }
+  }
+
+  @Test
+  public void shouldDeletePinnedFileOnCloseTest() throws IOException {
+    cache.put("1.jpg", image);
+    final StoredImage opened = cache.open("1.jpg").orElseThrow();
+
+    assertEquals("1.jpg", opened.getFilename());
+    assertTrue(opened.exists());
+
+    opened.close();
+    opened.close();
+
+    assertFalse(opened.exists());
+    assertTrue(cache.get("1.jpg").isPresent());
+    assertEquals(image.length, cache.getTotalBytes());
+  }
+
+  @Test
+  public void shouldReadOpenedImagesWhileEvictingConcurrentlyTest() throws Exception {
+    final int keys = 8;
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<?>> readers = new ArrayList<>();
+      for (int t = 0; t < 3; t++) {
+        readers.add(executor.submit(() -> {
+          for (int i = 0; i < 2000; i++) {
+            final Optional<StoredImage> opened = cache.open(i % keys + ".jpg");
+            if (opened.isPresent()) {
+              try (InputStream content = opened.get().getInputStream()) {
+                assertArrayEquals(image, content.readAllBytes());
+              }
+            }
+          }
+          return null;
+        }));
+      }
+
+      final Future<?> writer = executor.submit(() -> {
+        for (int i = 0; i < 2000; i++) {
+          cache.put(i % keys + ".jpg", image);
+        }
+      });
+
+      writer.get(30, TimeUnit.SECONDS);
+      for (Future<?> reader : readers) {
+        reader.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertTrue(cache.getTotalBytes() <= 10);
+  }
+
+  @Test
+  public void shouldFindPreviouslyStoredImagesTest() throws IOException {
+    cache.put("6516.jpg", image);
+
+    final ImageDiskCache restarted = new ImageDiskCache(
+      directory.toString(), DataSize.ofBytes(10)
+    );
+
+    assertTrue(restarted.get("6516.jpg").isPresent());
+    assertEquals(image.length, restarted.getTotalBytes());
+  }
+
+  @Test
+  public void shouldNotAcceptKeysOutsideOfDirectoryTest() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> cache.put("../6516.jpg", image)
+    );
+  }
+
+  @Test
+  public void shouldDeleteImagesWhenClearingTest() {
+    cache.put("6516.jpg", image);
+
+    cache.clear();
+
+    assertTrue(cache.get("6516.jpg").isEmpty());
+    assertFalse(Files.exists(directory.resolve("6516.jpg")));
+    assertEquals(0, cache.getTotalBytes());
+  }
+}
@@ -0,0 +1,87 @@
+package com.fs.fsapi.metallum.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.fs.fsapi.helpers.MetallumFileHelper;
+import com.fs.fsapi.metallum.parser.LyricsResult;
+
+public class LyricsCacheTest {
+
+  private final String songId = "57360";
+
+  private LyricsCache cache;
+
+  @BeforeEach
+  public void create() {
+    cache = new LyricsCache(10, Duration.ofHours(1), Duration.ofHours(1), DataSize.ofBytes(0));
+  }
+
+  @Test
+  public void shouldNotContainMappingInitiallyTest() {
+    assertTrue(cache.get(songId).isEmpty());
+  }
+
+  @Test
+  public void shouldReturnEqualLyricsAfterPuttingTest() {
+    final LyricsResult expected = MetallumFileHelper.LYRICS_RESULT;
+
+    cache.put(songId, expected);
+
+    final LyricsResult actual = cache.get(songId).get();
+    assertEquals(expected.getError(), actual.getError());
+    assertEquals(expected.getLyrics(), actual.getLyrics());
+  }
+
+  @Test
+  public void shouldReturnEqualErrorAfterPuttingTest() {
+    final LyricsResult expected = MetallumFileHelper.LYRICS_RESULT_INSTRUMENTAL;
+
+    cache.put(songId, expected);
+
+    final LyricsResult actual = cache.get(songId).get();
+    assertEquals(expected.getError(), actual.getError());
+    assertTrue(actual.getLyrics().isEmpty());
+  }
+
+  @Test
+  public void shouldKeepEmptyRowsTest() {
+    final List<String> expected = List.of("", "first", "", "");
+
+    cache.put(songId, new LyricsResult(expected));
+
+    assertEquals(expected, cache.get(songId).get().getLyrics());
+  }
+
+  @Test
+  public void shouldHoldLongLyricsInLessBytesThanTheTextTest() {
+    final LyricsResult lyrics = MetallumFileHelper.LYRICS_RESULT;
+    final int textLength = String.join("", lyrics.getLyrics()).length();
+
+    assertTrue(CompressedLyrics.compress(lyrics).getDataLength() < textLength);
+  }
+
+  @Test
+  public void shouldReturnEqualLyricsFromOffHeapTierTest() {
+    final LyricsCache offHeapCache = new LyricsCache(
+      1, Duration.ofHours(1), Duration.ofHours(1), DataSize.ofMegabytes(1)
+    );
+    final LyricsResult expected = MetallumFileHelper.LYRICS_RESULT;
+
+    offHeapCache.put(songId, expected);
+    offHeapCache.put("other", MetallumFileHelper.LYRICS_RESULT_INSTRUMENTAL);
+
+    assertTrue(offHeapCache.getOffHeapBytes() > 0);
+
+    final LyricsResult actual = offHeapCache.get(songId).get();
+    assertEquals(expected.getError(), actual.getError());
+    assertEquals(expected.getLyrics(), actual.getLyrics());
+  }
+}
@@ -0,0 +1,104 @@
+package com.fs.fsapi.metallum.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapStoreTest {
+
+  private static final OffHeapCodec<String> CODEC = new OffHeapCodec<>() {
+
+    @Override
+    public void write(String value, DataOutput out) throws IOException {
+      out.writeUTF(value);
+    }
+
+    @Override
+    public String read(DataInput in) throws IOException {
+      return in.readUTF();
+    }
+  };
+
+  private final CacheStats stats = new CacheStats();
+
+  private OffHeapStore<String, String> store;
+
+  @BeforeEach
+  public void create() {
+    // two pages fitting two values of the form "value-N" each
+    store = new OffHeapStore<>(36, 18, CODEC, stats);
+  }
+
+  @Test
+  public void shouldNotAllowBudgetSmallerThanPageTest() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new OffHeapStore<>(17, 18, CODEC, stats)
+    );
+  }
+
+  @Test
+  public void shouldTakeStoredValueTest() {
+    store.put("a", "value-1", 123);
+
+    final OffHeapStore.Stored<String> stored = store.take("a").get();
+
+    assertEquals("value-1", stored.value());
+    assertEquals(123, stored.expiresAt());
+    assertTrue(store.take("a").isEmpty());
+  }
+
+  @Test
+  public void shouldDropEntriesOfOldestPageWhenFullTest() {
+    store.put("a", "value-1", 0);
+    store.put("b", "value-2", 0);
+    store.put("c", "value-3", 0);
+    store.put("d", "value-4", 0);
+
+    // the first page is reused
+    store.put("e", "value-5", 0);
+
+    assertTrue(store.take("a").isEmpty());
+    assertTrue(store.take("b").isEmpty());
+    assertEquals("value-3", store.take("c").get().value());
+    assertEquals("value-5", store.take("e").get().value());
+    assertEquals(2, stats.getEvictionCount());
+  }
+
+  @Test
+  public void shouldReplaceStoredValueTest() {
+    store.put("a", "value-1", 0);
+    store.put("a", "value-2", 0);
+
+    assertEquals(1, store.size());
+    assertEquals(9, store.getUsedBytes());
+    assertEquals("value-2", store.take("a").get().value());
+  }
+
+  @Test
+  public void shouldDropValueLargerThanPageTest() {
+    store.put("a", "a value longer than a page", 0);
+
+    assertEquals(0, store.size());
+    assertEquals(1, stats.getEvictionCount());
+  }
+
+  @Test
+  public void shouldRemoveMatchingKeysTest() {
+    store.put("a", "value-1", 0);
+    store.put("b", "value-2", 0);
+
+    store.removeIf(key -> key.equals("a"));
+
+    assertTrue(store.take("a").isEmpty());
+    assertEquals("value-2", store.take("b").get().value());
+    assertEquals(0, store.getUsedBytes());
+  }
+}
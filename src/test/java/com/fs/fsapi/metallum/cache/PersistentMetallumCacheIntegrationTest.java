@@ -0,0 +1,122 @@
+package com.fs.fsapi.metallum.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fs.fsapi.helpers.MetallumFileHelper;
+import com.fs.fsapi.metallum.parser.ArtistTitleSearchResult;
+import com.fs.fsapi.metallum.parser.SongResult;
+
+@Testcontainers
+@SpringBootTest(properties = { "metallum.cache.persistent.enabled=true" })
+public class PersistentMetallumCacheIntegrationTest {
+
+  @Autowired
+  private PersistentMetallumCache cache;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Container
+  @ServiceConnection
+  public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+    "postgres:16-alpine"
+  );
+
+  @BeforeAll
+  public static void startContainer() {
+    postgres.start();
+  }
+
+  @AfterAll
+  public static void stopContainer() {
+    postgres.stop();
+  }
+
+  @BeforeEach
+  public void resetDb() {
+    jdbcTemplate.update("DELETE FROM metallum_cache");
+  }
+
+  @Test
+  public void shouldBeEnabledTest() {
+    assertTrue(cache.isEnabled());
+  }
+
+  @Test
+  public void shouldNotContainMappingInitiallyTest() {
+    assertTrue(cache
+      .get(MetallumCacheType.TITLE_PAGES, "73550", new TypeReference<List<SongResult>>() {})
+      .isEmpty()
+    );
+  }
+
+  @Test
+  public void shouldReadSearchResultAfterPuttingTest() {
+    final ArtistTitleSearchResult expected = MetallumFileHelper.SEARCH_RESULT;
+    final String key = expected.getArtist() + "\n" + expected.getTitle();
+
+    cache.put(MetallumCacheType.SEARCH, key, expected);
+
+    final Optional<ArtistTitleSearchResult> opt = cache.get(
+      MetallumCacheType.SEARCH, key, new TypeReference<ArtistTitleSearchResult>() {}
+    );
+    assertTrue(opt.isPresent());
+
+    final ArtistTitleSearchResult actual = opt.get();
+    assertEquals(expected.getArtist(), actual.getArtist());
+    assertEquals(expected.getArtistHref(), actual.getArtistHref());
+    assertEquals(expected.getArtistId(), actual.getArtistId());
+    assertEquals(expected.getTitle(), actual.getTitle());
+    assertEquals(expected.getTitleHref(), actual.getTitleHref());
+    assertEquals(expected.getTitleId(), actual.getTitleId());
+    assertEquals(expected.getReleaseType(), actual.getReleaseType());
+  }
+
+  @Test
+  public void shouldReplaceSongsWhenPuttingAgainTest() {
+    final List<SongResult> expected = MetallumFileHelper.SONGS_RESULT_WITHOUT_LYRICS;
+
+    cache.put(MetallumCacheType.TITLE_PAGES, "73550", MetallumFileHelper.SONGS_RESULT_WITH_LYRICS);
+    cache.put(MetallumCacheType.TITLE_PAGES, "73550", expected);
+
+    final List<SongResult> actual = cache
+      .get(MetallumCacheType.TITLE_PAGES, "73550", new TypeReference<List<SongResult>>() {})
+      .get();
+
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getId(), actual.get(i).getId());
+      assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+      assertEquals(expected.get(i).getDuration(), actual.get(i).getDuration());
+    }
+  }
+
+  @Test
+  public void shouldNotReturnExpiredEntriesTest() {
+    cache.put(MetallumCacheType.TITLE_PAGES, "73550", MetallumFileHelper.SONGS_RESULT_WITH_LYRICS);
+
+    jdbcTemplate.update("UPDATE metallum_cache SET expires_at = now() - interval '1 second'");
+
+    assertTrue(cache
+      .get(MetallumCacheType.TITLE_PAGES, "73550", new TypeReference<List<SongResult>>() {})
+      .isEmpty()
+    );
+  }
+}
@@ -0,0 +1,97 @@
+package com.fs.fsapi.metallum.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+public class DataBufferInputStreamTest {
+
+  private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+  @Test
+  public void shouldReadEveryBufferTest() throws IOException {
+    final Flux<DataBuffer> body = Flux.just("first ", "second ", "third").map(this::buffer);
+
+    try (InputStream in = new DataBufferInputStream(body, 2)) {
+      assertEquals("first second third", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void shouldRequestOnlyPrefetchedBuffersAheadTest() throws IOException {
+    final AtomicLong requested = new AtomicLong();
+    final Flux<DataBuffer> body = Flux.range(0, 100)
+      .map(i -> buffer("x"))
+      .doOnRequest(requested::addAndGet);
+
+    try (InputStream in = new DataBufferInputStream(body, 4)) {
+      in.read();
+      in.read();
+
+      assertTrue(requested.get() <= 6);
+    }
+  }
+
+  @Test
+  public void shouldCancelBodyWhenClosedTest() throws IOException {
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    final Flux<DataBuffer> body = Flux.range(0, 100)
+      .map(i -> buffer("x"))
+      .doOnCancel(() -> cancelled.set(true));
+
+    final InputStream in = new DataBufferInputStream(body, 4);
+    in.read();
+    in.close();
+
+    assertTrue(cancelled.get());
+    assertThrows(IOException.class, in::read);
+  }
+
+  @Test
+  public void shouldWakeUpWaitingReaderWhenClosedTest() throws Exception {
+    final Sinks.Many<DataBuffer> body = Sinks.many().unicast().onBackpressureBuffer();
+    final DataBufferInputStream in = new DataBufferInputStream(body.asFlux(), 4);
+
+    final var read = Mono.fromCallable(in::read)
+      .subscribeOn(Schedulers.boundedElastic())
+      .toFuture();
+
+    Schedulers.parallel().schedule(in::close, 100, TimeUnit.MILLISECONDS);
+
+    final Exception e = assertThrows(Exception.class, () -> read.get(5, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof IOException);
+  }
+
+  @Test
+  public void shouldThrowBodyErrorTest() throws IOException {
+    final Flux<DataBuffer> body = Flux.concat(
+      Flux.just(buffer("x")),
+      Flux.error(new IllegalStateException("Connection reset"))
+    );
+
+    try (InputStream in = new DataBufferInputStream(body, 4)) {
+      assertEquals('x', in.read());
+      assertThrows(IllegalStateException.class, in::read);
+    }
+  }
+
+  private DataBuffer buffer(String value) {
+    return bufferFactory.wrap(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,95 @@
+package com.fs.fsapi.metallum.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class InFlightRequestsTest {
+
+  private final String key = "songs/73550";
+
+  private InFlightRequests inFlight;
+
+  private AtomicInteger subscriptions;
+
+  private Sinks.One<String> upstream;
+
+  private Supplier<Mono<String>> request;
+
+  @BeforeEach
+  public void init() {
+    inFlight = new InFlightRequests();
+    subscriptions = new AtomicInteger();
+    upstream = Sinks.one();
+    request = () -> upstream.asMono()
+      .doOnSubscribe(s -> subscriptions.incrementAndGet());
+  }
+
+  @Test
+  public void shouldNotStartRequestBeforeSubscribingTest() {
+    inFlight.join(key, request);
+
+    assertEquals(0, subscriptions.get());
+    assertEquals(0, inFlight.size());
+  }
+
+  @Test
+  public void shouldShareRequestBetweenConcurrentCallersTest() {
+    final List<String> values = new ArrayList<>();
+
+    inFlight.join(key, request).subscribe(values::add);
+    inFlight.join(key, request).subscribe(values::add);
+
+    upstream.tryEmitValue("value");
+
+    assertEquals(1, subscriptions.get());
+    assertEquals(List.of("value", "value"), values);
+  }
+
+  @Test
+  public void shouldShareErrorBetweenConcurrentCallersTest() {
+    final List<Throwable> errors = new ArrayList<>();
+
+    inFlight.join(key, request).subscribe(v -> {}, errors::add);
+    inFlight.join(key, request).subscribe(v -> {}, errors::add);
+
+    final RuntimeException error = new RuntimeException("upstream failed");
+    upstream.tryEmitError(error);
+
+    assertEquals(1, subscriptions.get());
+    assertEquals(List.of(error, error), errors);
+  }
+
+  @Test
+  public void shouldNotShareRequestsWithDifferentKeysTest() {
+    inFlight.join(key, request).subscribe();
+    inFlight.join("songs/6516", request).subscribe();
+
+    assertEquals(2, subscriptions.get());
+    assertEquals(2, inFlight.size());
+  }
+
+  @Test
+  public void shouldStartNewRequestAfterPreviousHasTerminatedTest() {
+    inFlight.join(key, request).subscribe();
+    upstream.tryEmitValue("value");
+
+    assertTrue(inFlight.size() == 0);
+
+    inFlight.join(key, () -> Mono.just("new value")
+        .doOnSubscribe(s -> subscriptions.incrementAndGet()))
+      .subscribe();
+
+    assertEquals(2, subscriptions.get());
+  }
+}
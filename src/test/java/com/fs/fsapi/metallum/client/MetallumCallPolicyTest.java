@@ -0,0 +1,169 @@
+package com.fs.fsapi.metallum.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.exceptions.CustomMetallumUnavailableException;
+import com.fs.fsapi.metallum.client.MetallumCallPolicy.Operation;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class MetallumCallPolicyTest {
+
+  private final AtomicInteger attempts = new AtomicInteger();
+
+  private MetallumCallPolicy policy;
+
+  @BeforeEach
+  public void create() {
+    policy = new MetallumCallPolicy(
+      new MetallumCircuitBreaker(5, Duration.ofSeconds(30)),
+      new MetallumRateLimiter(1000, 1000, 0, Duration.ofSeconds(1)),
+      Duration.ofMillis(100),
+      Duration.ofMillis(100),
+      Duration.ofMillis(100),
+      Duration.ofMillis(100),
+      Duration.ofSeconds(5),
+      2,
+      Duration.ofMillis(1),
+      0.5
+    );
+  }
+
+  @Test
+  public void shouldRetryServerErrorsTest() {
+    final Mono<String> call = Mono.defer(() -> attempts.incrementAndGet() < 3
+      ? Mono.error(status(503))
+      : Mono.just("value"));
+
+    assertEquals("value", policy.apply(Operation.SEARCH, call).block());
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  public void shouldFailAsUnavailableWhenRetriesAreExhaustedTest() {
+    final Mono<String> call = Mono.defer(() -> {
+      attempts.incrementAndGet();
+      return Mono.error(status(503));
+    });
+
+    assertThrows(
+      CustomMetallumUnavailableException.class,
+      () -> policy.apply(Operation.SEARCH, call).block()
+    );
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  public void shouldRetryTimeoutsTest() {
+    final Mono<String> call = Mono.defer(() -> attempts.incrementAndGet() < 2
+      ? Mono.<String>never()
+      : Mono.just("value"));
+
+    assertEquals("value", policy.apply(Operation.SONGS, call).block());
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void shouldFailAsUnavailableWhenDeadlinePassesTest() {
+    final MetallumCallPolicy bounded = new MetallumCallPolicy(
+      new MetallumCircuitBreaker(5, Duration.ofSeconds(30)),
+      new MetallumRateLimiter(1000, 1000, 0, Duration.ofSeconds(1)),
+      Duration.ofMillis(100),
+      Duration.ofMillis(100),
+      Duration.ofMillis(100),
+      Duration.ofMillis(100),
+      Duration.ofMillis(150),
+      2,
+      Duration.ofMillis(1),
+      0.5
+    );
+    final Mono<String> call = Mono.defer(() -> {
+      attempts.incrementAndGet();
+      return Mono.never();
+    });
+
+    assertThrows(
+      CustomMetallumUnavailableException.class,
+      () -> bounded.apply(Operation.SEARCH, call).block(Duration.ofSeconds(5))
+    );
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void shouldNotTimeOutWhileWaitingForRateLimiterTest() {
+    final MetallumCircuitBreaker breaker = new MetallumCircuitBreaker(1, Duration.ofSeconds(30));
+    final MetallumCallPolicy limited = new MetallumCallPolicy(
+      breaker,
+      // the fifth call waits 400ms for its token
+      new MetallumRateLimiter(10, 1, 10, Duration.ofSeconds(5)),
+      Duration.ofMillis(150),
+      Duration.ofMillis(150),
+      Duration.ofMillis(150),
+      Duration.ofMillis(150),
+      Duration.ofSeconds(5),
+      0,
+      Duration.ofMillis(1),
+      0.5
+    );
+    final Mono<String> call = Mono.defer(() -> {
+      attempts.incrementAndGet();
+      return Mono.just("value").delayElement(Duration.ofMillis(20));
+    });
+
+    final List<String> values = Flux.range(0, 5)
+      .flatMap(i -> limited.apply(Operation.SEARCH, call))
+      .collectList()
+      .block(Duration.ofSeconds(5));
+
+    assertEquals(5, values.size());
+    assertEquals(5, attempts.get());
+    assertEquals(MetallumCircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void shouldNotRetryClientErrorsTest() {
+    final Mono<String> call = Mono.defer(() -> {
+      attempts.incrementAndGet();
+      return Mono.error(status(404));
+    });
+
+    assertThrows(
+      WebClientResponseException.class,
+      () -> policy.apply(Operation.LYRICS, call).block()
+    );
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  public void shouldNotRetryOtherErrorsTest() {
+    final Mono<String> call = Mono.defer(() -> {
+      attempts.incrementAndGet();
+      return Mono.error(new CustomDataNotFoundException("No results"));
+    });
+
+    assertThrows(
+      CustomDataNotFoundException.class,
+      () -> policy.apply(Operation.SEARCH, call).block()
+    );
+    assertEquals(1, attempts.get());
+  }
+
+  private static WebClientResponseException status(int status) {
+    return WebClientResponseException.create(
+      status, "", HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8
+    );
+  }
+}
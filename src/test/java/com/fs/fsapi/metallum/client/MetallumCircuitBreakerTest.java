@@ -0,0 +1,122 @@
+package com.fs.fsapi.metallum.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fs.fsapi.exceptions.CustomDataNotFoundException;
+import com.fs.fsapi.exceptions.CustomMetallumUnavailableException;
+import com.fs.fsapi.metallum.client.MetallumCircuitBreaker.State;
+
+import reactor.core.publisher.Mono;
+
+public class MetallumCircuitBreakerTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private MetallumCircuitBreaker breaker;
+
+  @BeforeEach
+  public void create() {
+    breaker = new MetallumCircuitBreaker(2, Duration.ofSeconds(30), now::get);
+  }
+
+  @Test
+  public void shouldOpenAfterConsecutiveFailuresTest() {
+    fail();
+    assertEquals(State.CLOSED, breaker.getState());
+
+    fail();
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void shouldRejectCallsWithoutCallingWhileOpenTest() {
+    fail();
+    fail();
+    calls.set(0);
+
+    assertThrows(CustomMetallumUnavailableException.class, () -> succeed());
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void shouldNotCountOtherErrorsAsFailuresTest() {
+    fail();
+    otherError();
+    otherError();
+
+    assertEquals(State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void shouldNotCloseWhenProbeFailsWithOtherErrorTest() {
+    fail();
+    fail();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+    otherError();
+    assertEquals(State.HALF_OPEN, breaker.getState());
+
+    // the probe was released, so the next call probes instead
+    assertEquals("value", succeed());
+    assertEquals(State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void shouldCloseWhenProbeSucceedsTest() {
+    fail();
+    fail();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+    assertEquals("value", succeed());
+    assertEquals(State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void shouldOpenAgainWhenProbeFailsTest() {
+    fail();
+    fail();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+    fail();
+    assertEquals(State.OPEN, breaker.getState());
+    assertThrows(CustomMetallumUnavailableException.class, () -> succeed());
+  }
+
+  private String succeed() {
+    return call(Mono.just("value"));
+  }
+
+  private void otherError() {
+    assertThrows(
+      CustomDataNotFoundException.class,
+      () -> call(Mono.error(new CustomDataNotFoundException("No results")))
+    );
+  }
+
+  private void fail() {
+    assertThrows(
+      IllegalStateException.class,
+      () -> call(Mono.error(new IllegalStateException("Upstream failed")))
+    );
+  }
+
+  private String call(Mono<String> upstream) {
+    return breaker
+      .protect(
+        upstream.doOnSubscribe(s -> calls.incrementAndGet()),
+        e -> e instanceof IllegalStateException
+      )
+      .block();
+  }
+}
@@ -0,0 +1,34 @@
+package com.fs.fsapi.metallum.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.fs.fsapi.metallum.client.MetallumCircuitBreaker.State;
+
+@SpringBootTest(classes = {
+  MetallumRateLimiter.class,
+  MetallumCircuitBreaker.class,
+  MetallumCallPolicy.class,
+})
+public class MetallumClientContextTest {
+
+  @Autowired
+  private MetallumRateLimiter rateLimiter;
+
+  @Autowired
+  private MetallumCircuitBreaker circuitBreaker;
+
+  @Autowired
+  private MetallumCallPolicy callPolicy;
+
+  @Test
+  public void shouldCreateClientBeansTest() {
+    assertNotNull(callPolicy);
+    assertEquals(0, rateLimiter.getQueueDepth());
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+  }
+}
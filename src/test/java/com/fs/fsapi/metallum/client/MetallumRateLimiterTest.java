@@ -0,0 +1,131 @@
+package com.fs.fsapi.metallum.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fs.fsapi.exceptions.CustomMetallumException;
+
+import reactor.util.context.Context;
+
+public class MetallumRateLimiterTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  private MetallumRateLimiter limiter;
+
+  @BeforeEach
+  public void create() {
+    // 2 requests per second, bursts of 3, and 2 waiting requests at most
+    limiter = new MetallumRateLimiter(2, 3, 2, Duration.ofSeconds(5), now::get);
+  }
+
+  @Test
+  public void shouldAllowBurstWithoutWaitingTest() {
+    assertEquals(0, limiter.reserve());
+    assertEquals(0, limiter.reserve());
+    assertEquals(0, limiter.reserve());
+  }
+
+  @Test
+  public void shouldQueueRequestsAfterBurstTest() {
+    drainBurst();
+
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.reserve());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), limiter.reserve());
+    assertEquals(2, limiter.getQueueDepth());
+  }
+
+  @Test
+  public void shouldRefillTokensAtRateTest() {
+    drainBurst();
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+    assertEquals(0, limiter.reserve());
+  }
+
+  @Test
+  public void shouldNotRefillOverBurstTest() {
+    now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+    drainBurst();
+
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.reserve());
+  }
+
+  @Test
+  public void shouldRejectWhenQueueIsFullTest() {
+    drainBurst();
+    limiter.reserve();
+    limiter.reserve();
+
+    assertThrows(CustomMetallumException.class, () -> limiter.reserve());
+  }
+
+  @Test
+  public void shouldRejectWhenWaitExceedsTimeoutTest() {
+    limiter = new MetallumRateLimiter(2, 3, 100, Duration.ofSeconds(1), now::get);
+    drainBurst();
+    limiter.reserve();
+    limiter.reserve();
+
+    assertThrows(CustomMetallumException.class, () -> limiter.reserve());
+  }
+
+  @Test
+  public void shouldReturnTokenOfCancelledRequestTest() {
+    drainBurst();
+
+    limiter.acquire().subscribe().dispose();
+
+    assertEquals(0, limiter.getQueueDepth());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.reserve());
+  }
+
+  @Test
+  public void shouldTakeTokenForBackgroundRequestWhenIdleTest() {
+    assertTrue(limiter.tryTakeIdle());
+
+    assertEquals(0, limiter.reserve());
+    assertEquals(0, limiter.reserve());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.reserve());
+  }
+
+  @Test
+  public void shouldNotTakeTokenForBackgroundRequestWhileRequestsWaitTest() {
+    drainBurst();
+    limiter.reserve();
+
+    // the token refilled meanwhile is reserved by the waiting request
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+    assertFalse(limiter.tryTakeIdle());
+    assertEquals(1, limiter.getQueueDepth());
+  }
+
+  @Test
+  public void shouldRejectBackgroundRequestWhenNoTokenIsLeftOverTest() {
+    limiter = new MetallumRateLimiter(2, 3, 2, Duration.ofMillis(100), now::get);
+    drainBurst();
+
+    assertThrows(
+      CustomMetallumException.class,
+      () -> limiter.acquire().contextWrite(Context.of(MetallumRateLimiter.BACKGROUND, true)).block()
+    );
+    assertEquals(0, limiter.getQueueDepth());
+  }
+
+  private void drainBurst() {
+    for (int i = 0; i < 3; i++) {
+      limiter.reserve();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.fs.fsapi.metallum.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fs.fsapi.helpers.MetallumFileHelper;
+import com.fs.fsapi.metallum.response.AaDataValue;
+import com.fs.fsapi.metallum.response.ArtistTitleSearchResponse;
+
+/**
+ * Compares extracting the search result links of
+ * {@code src/test/data/metallum/search.json} with the anchor extractor and
+ * with jsoup. Not run by the tests, run the main method, for example from
+ * the IDE, or add {@code -prof gc} to the options to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnchorExtractorBenchmark {
+
+  private final MetallumParser parser = new MetallumParser();
+
+  private List<String> fragments;
+
+  @Setup
+  public void readFragments() throws IOException {
+    final ArtistTitleSearchResponse response = new ObjectMapper()
+      .readValue(MetallumFileHelper.readSearchResponseFile(), ArtistTitleSearchResponse.class);
+
+    fragments = new ArrayList<>();
+    for (AaDataValue data : response.getAaData()) {
+      fragments.add(data.getArtistLinkElementOuterHtml());
+      fragments.add(data.getTitleLinkElementOuterHtml());
+    }
+  }
+
+  @Benchmark
+  public void anchorExtractor(Blackhole blackhole) {
+    for (String fragment : fragments) {
+      blackhole.consume(AnchorExtractor.extract(fragment));
+    }
+  }
+
+  @Benchmark
+  public void jsoup(Blackhole blackhole) {
+    for (String fragment : fragments) {
+      blackhole.consume(parser.parseSearchDataElementOuterHtmlWithJsoup(fragment));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(AnchorExtractorBenchmark.class.getSimpleName())
+      .build()
+    ).run();
+  }
+}
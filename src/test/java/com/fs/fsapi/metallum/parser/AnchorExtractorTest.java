@@ -0,0 +1,68 @@
+package com.fs.fsapi.metallum.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+
+import com.fs.fsapi.bookmark.parser.LinkElement;
+
+public class AnchorExtractorTest {
+
+  @Test
+  public void shouldExtractSearchResultLinkTest() {
+    assertSameAsJsoup(
+      "<a href=\"https://www.metal-archives.com/bands/Adramelech/2426\" title=\"Adramelech (FI)\">Adramelech</a>"
+    );
+  }
+
+  @Test
+  public void shouldIgnoreContentAfterEndTagTest() {
+    assertSameAsJsoup(
+      "<a href=\"https://www.metal-archives.com/albums/Adramelech/Human_Extermination/73550\">Human Extermination</a> <!-- 16.817602 -->"
+    );
+  }
+
+  @Test
+  public void shouldDecodeEntitiesTest() {
+    assertSameAsJsoup("<a href=\"/bands/Guns_N&amp;_Roses/1?a=1&amp;b=2\">Guns N&#39; Roses &amp; Co&nbsp;</a>");
+  }
+
+  @Test
+  public void shouldExtractTextOfNestedMarkupTest() {
+    assertSameAsJsoup("<a href='/albums/1'><span class=\"x > y\">Live</span> <!-- c --><b>at</b> Wacken</a>");
+  }
+
+  @Test
+  public void shouldHandleAttributeVariantsTest() {
+    assertSameAsJsoup("<A TITLE=x HREF=/bands/1 href=\"/bands/2\">Band</A>");
+  }
+
+  @Test
+  public void shouldLeaveUnsupportedFragmentsToJsoupTest() {
+    final List<String> fragments = List.of(
+      "<a href=\"/bands/1\">Band",
+      "<a href=\"/bands/1\">Band<br>Name</a>",
+      "<a title=\"no link\">Band</a>",
+      "<span><a href=\"/bands/1\">Band</a></span>",
+      "<a href=\"/bands/1\"><a href=\"/bands/2\">Band</a></a>",
+      "<a href=\"/bands/1\">1 < 2</a>"
+    );
+
+    for (String fragment : fragments) {
+      assertTrue(fragment, AnchorExtractor.extract(fragment).isEmpty());
+    }
+  }
+
+  private static void assertSameAsJsoup(String html) {
+    final Element expected = Jsoup.parse(html).selectFirst("a");
+    final LinkElement actual = AnchorExtractor.extract(html).orElseThrow();
+
+    assertEquals(expected.attr("href"), actual.getHref());
+    assertEquals(expected.wholeText(), actual.getText());
+  }
+}
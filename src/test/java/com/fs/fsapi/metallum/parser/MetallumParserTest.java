@@ -2,10 +2,15 @@ package com.fs.fsapi.metallum.parser;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -45,6 +50,18 @@ public class MetallumParserTest {
 
       assertEquals(expected.getReleaseType(), actual.getReleaseType());
     }
+
+    @Test
+    public void shouldReturnEverySearchResultTest() {
+      final ArtistTitleSearchResponse response = MetallumFileHelper.SEARCH_RESPONSE;
+      final List<ArtistTitleSearchResult> actual = parser
+        .getSearchResults(response, null, null);
+
+      assertEquals(1, actual.size());
+      assertEquals(expected.getArtistHref(), actual.get(0).getArtistHref());
+      assertEquals(expected.getTitleHref(), actual.get(0).getTitleHref());
+      assertEquals(expected.getReleaseType(), actual.get(0).getReleaseType());
+    }
   }
   
   @Nested
@@ -66,6 +83,90 @@ public class MetallumParserTest {
         assertEquals(expected.get(i).getDuration(), actual.get(i).getDuration());
       }
     }
+
+    @Test
+    public void shouldParseSongsFromReaderTest() throws IOException {
+      final List<SongResult> actual = parser.parseSongs(
+        new StringReader(MetallumFileHelper.readTitlePageWithLyricsFile())
+      );
+
+      assertEquals(expected.size(), actual.size());
+      assertEquals(expected.get(0).getId(), actual.get(0).getId());
+    }
+
+    @Test
+    public void shouldStopReadingAfterSongTableTest() throws IOException {
+      final String page = "<html><body><table class=\"table_lyrics\"><tbody>"
+        + "<tr class=\"odd\"><td><a name=\"1\"></a>1.</td><td>Song</td><td>03:00</td></tr>"
+        + "</tbody></table>"
+        + "<p>filler</p>".repeat(100_000)
+        + "</body></html>";
+      final AtomicLong read = new AtomicLong();
+      final Reader reader = new FilterReader(new StringReader(page)) {
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+          final int count = super.read(buffer, offset, length);
+          read.addAndGet(Math.max(0, count));
+          return count;
+        }
+      };
+
+      final List<SongResult> actual = parser.parseSongs(reader);
+
+      assertEquals(1, actual.size());
+      assertEquals("1", actual.get(0).getId());
+      assertTrue(read.get() < page.length() / 10);
+    }
+  }
+
+  @Nested
+  @DisplayName("parseTitlePage")
+  public class ParseTitlePage {
+
+    @Test
+    public void shouldParseReleaseDetailsTest() throws IOException {
+      final TitlePageResult actual = parser.parseTitlePage(
+        new StringReader(MetallumFileHelper.readTitlePageWithLyricsFile())
+      );
+      final ReleaseDetailsResult details = actual.getDetails();
+
+      assertEquals("Psychostasia", details.getTitle());
+      assertEquals("Adramelech", details.getArtist());
+      assertEquals("Full-length", details.getReleaseType());
+      assertEquals("June 22nd, 1996", details.getReleaseDate());
+      assertEquals("RPS 015 CD", details.getCatalogId());
+      assertEquals("Repulse Records", details.getLabel());
+      assertEquals("CD", details.getFormat());
+      assertEquals("https://www.metal-archives.com/images/6/5/1/6/6516.jpg", details.getCoverUrl());
+      assertEquals(MetallumFileHelper.SONGS_RESULT_WITH_LYRICS.size(), actual.getSongs().size());
+    }
+
+    @Test
+    public void shouldParseVersionedCoverUrlTest() throws IOException {
+      final TitlePageResult actual = parser.parseTitlePage(
+        new StringReader(MetallumFileHelper.readTitlePageWithoutLyricsFile())
+      );
+
+      assertEquals(
+        "https://www.metal-archives.com/images/1/9/6/5/19654.jpg?4100",
+        actual.getDetails().getCoverUrl()
+      );
+      assertEquals("Independent", actual.getDetails().getLabel());
+    }
+
+    @Test
+    public void shouldLeaveMissingDetailsEmptyTest() {
+      final TitlePageResult actual = parser.parseTitlePage(new StringReader(
+        "<html><body><table class=\"table_lyrics\"><tbody>"
+        + "<tr class=\"odd\"><td><a name=\"1\"></a>1.</td><td>Song</td><td>03:00</td></tr>"
+        + "</tbody></table></body></html>"
+      ));
+
+      assertNull(actual.getDetails().getTitle());
+      assertNull(actual.getDetails().getCoverUrl());
+      assertEquals(1, actual.getSongs().size());
+    }
   }
 
   @Nested
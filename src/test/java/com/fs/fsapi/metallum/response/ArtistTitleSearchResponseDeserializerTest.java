@@ -3,6 +3,7 @@ package com.fs.fsapi.metallum.response;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
 
@@ -11,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.json.JsonTest;
 import org.springframework.boot.test.json.JacksonTester;
 
+import com.fs.fsapi.exceptions.CustomMetallumScrapingException;
 import com.fs.fsapi.helpers.MetallumFileHelper;
 
 @JsonTest
@@ -33,5 +35,55 @@ public class ArtistTitleSearchResponseDeserializerTest {
     assertFalse(expected.getAaData().isEmpty());
     assertIterableEquals(expected.getAaData(), actual.getAaData());
   }
+
+  @Test
+  public void shouldSkipUnknownPropertiesTest() throws IOException {
+    final ArtistTitleSearchResponse actual = jacksonTester.parseObject(
+      "{\"error\": \"\", \"sEcho\": {\"nested\": [1, 2]}, \"iTotalRecords\": 1,"
+      + " \"aaData\": [[\"<a href='1'>A</a>\", \"<a href='2'>T</a>\", \"Demo\"]]}"
+    );
+
+    assertEquals(1, actual.getTotalRecords());
+    assertEquals(1, actual.getAaData().size());
+    assertEquals("Demo", actual.getAaData().get(0).getReleaseType());
+  }
+
+  @Test
+  public void shouldNotAllowMissingPropertyTest() {
+    assertThrows(
+      CustomMetallumScrapingException.class,
+      () -> jacksonTester.parseObject("{\"error\": \"\", \"aaData\": []}")
+    );
+  }
+
+  @Test
+  public void shouldNotAllowNonArrayDataTest() {
+    assertThrows(
+      CustomMetallumScrapingException.class,
+      () -> jacksonTester.parseObject(
+        "{\"error\": \"\", \"iTotalRecords\": 0, \"aaData\": {}}"
+      )
+    );
+  }
+
+  @Test
+  public void shouldNotAllowDataRowOfWrongLengthTest() {
+    assertThrows(
+      CustomMetallumScrapingException.class,
+      () -> jacksonTester.parseObject(
+        "{\"error\": \"\", \"iTotalRecords\": 1, \"aaData\": [[\"a\", \"b\"]]}"
+      )
+    );
+  }
+
+  @Test
+  public void shouldNotAllowNonIntRecordCountTest() {
+    assertThrows(
+      CustomMetallumScrapingException.class,
+      () -> jacksonTester.parseObject(
+        "{\"error\": \"\", \"iTotalRecords\": \"1\", \"aaData\": []}"
+      )
+    );
+  }
 }
 